@@ -1,8 +1,19 @@
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -48,19 +59,31 @@ public class AppController {
     private int currentIndex = 0;
     private LocalDate validStartDate;
     private LocalDate validEndDate;
+    private CovidDataset dataset;
     private MapPanelAnalyzer mapPanelAnalyzer;
+    private boolean configuringDatePickers; // Suppresses range validation while the pickers are set up.
+    private CovidDataTailer dataTailer; // Adds rows appended to the csv file, null if it cannot be followed.
+
+    // Background recomputation of the panels when the date range changes
+    private static final ExecutorService PANEL_EXECUTOR = Executors.newFixedThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, "covid-panel-worker");
+        thread.setDaemon(true); // Do not keep the application alive once it is closed.
+        return thread;
+    });
+    private volatile long rangeGeneration; // Incremented on every range change; older work stops early.
+    private List<CompletableFuture<?>> pendingRecomputation = new ArrayList<>();
 
     /**
      * Initializes the controller class. This method is automatically called after
-     * the FXML file has been loaded. It sets up the application's UI and loads the
-     * necessary data.
+     * the FXML file has been loaded. It sets up the application's UI and starts
+     * loading the necessary data in the background, so the window can be shown
+     * straight away.
      */
     public void initialize() {
-        loadCovidData(); // Load COVID data and determine the date range
-        configureDatePickers(); // Configure date pickers based on loaded data
         initializePanels(); // Setup panels and ensure welcomePanel is visible first
         setupButtonHandlers(); // Setup navigation and other button handlers
         setupMenuItemHandlers(); // Setup MenuItems handlers
+        loadCovidData(); // Load COVID data and determine the date range in the background
     }
 
     /**
@@ -80,7 +103,6 @@ public class AppController {
             FXMLLoader mapLoader = new FXMLLoader(getClass().getResource("MapPanelGUI.fxml"));
             VBox mapPane = mapLoader.load();
             this.mapController = mapLoader.getController();
-            this.mapController.setMapPanelAnalyzer(mapPanelAnalyzer);
             panels.add(mapPane); // Add loaded map panel to the list
 
             // Load Statistics Panel
@@ -94,6 +116,9 @@ public class AppController {
             Pane lineChartPane = lineChartLoader.load();
             this.lineChartController = lineChartLoader.getController();
             panels.add(lineChartPane); // Add loaded line chart panel to the list
+
+            // The data panels are enabled once the COVID data has been loaded.
+            setDataPanelsDisabled(true);
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error: Initializing Panels was not successful");
@@ -103,24 +128,121 @@ public class AppController {
     }
 
     /**
-     * Loads COVID data from csv file, establishing the range of valid dates for
-     * which data is available.
+     * Starts loading COVID data from csv file on a background thread. While it
+     * loads, the welcome panel shows the progress and the date pickers are
+     * disabled; once it is done, the range of valid dates is established and the
+     * data panels are enabled.
      */
     private void loadCovidData() {
-        try {
-            CovidDataLoader loader = new CovidDataLoader();
-            loader.load();
-            LocalDate[] dateRange = loader.getDateRange();
-            validStartDate = dateRange[0];
-            validEndDate = dateRange[1];
-
-            // Instantiate MapPanelAnalyzer with the valid date range
-            mapPanelAnalyzer = new MapPanelAnalyzer(validStartDate, validEndDate);
-        } catch (Exception e) {
+        startDatePicker.setDisable(true);
+        endDatePicker.setDisable(true);
+
+        Task<CovidDataset> loadTask = new Task<CovidDataset>() {
+            @Override
+            protected CovidDataset call() throws IOException {
+                // Measure the file first; rows appended while it loads are picked up later.
+                Path dataFile = null;
+                long loadedBytes = 0;
+                try {
+                    dataFile = CovidDataLoader.getDataFile();
+                    loadedBytes = Files.size(dataFile);
+                } catch (IOException | URISyntaxException | RuntimeException e) {
+                    System.err.println("Error: The COVID data file cannot be followed for new rows");
+                }
+
+                CovidDataLoader loader = new CovidDataLoader();
+                loader.setProgressListener(this::updateProgress);
+                CovidDataset loadedDataset = CovidDataset.getInstance(loader);
+                if (dataFile != null && loadedDataset.size() > 0) {
+                    dataTailer = new CovidDataTailer(dataFile, loadedDataset, loadedBytes);
+                }
+                return loadedDataset;
+            }
+        };
+        loadTask.setOnSucceeded(event -> handleCovidDataLoaded(loadTask.getValue()));
+        loadTask.setOnFailed(event -> {
+            Throwable e = loadTask.getException();
+            e.printStackTrace();
+            System.err.println("Error: Loading the COVID data file was not successful: " + e.getMessage());
+            welcomeController.hideLoadingProgress();
             showAlertDialog("Data Loading Error", "Failed to load COVID data.");
+        });
+        welcomeController.showLoadingProgress(loadTask.progressProperty());
+
+        Thread loadThread = new Thread(loadTask, "covid-data-loader");
+        loadThread.setDaemon(true); // Do not keep the application alive if it is closed while loading.
+        loadThread.start();
+    }
+
+    /**
+     * Hands the loaded COVID data to the panels and enables them. Called on the
+     * JavaFX Application Thread when loading has finished.
+     *
+     * @param loadedDataset The loaded data set.
+     */
+    private void handleCovidDataLoaded(CovidDataset loadedDataset) {
+        welcomeController.hideLoadingProgress();
+        if (loadedDataset.size() == 0) {
+            showAlertDialog("Data Loading Error", "Failed to load COVID data.");
+            return;
+        }
+
+        dataset = loadedDataset;
+        LocalDate[] dateRange = dataset.getDateRange();
+        validStartDate = dateRange[0];
+        validEndDate = dateRange[1];
+
+        // Instantiate MapPanelAnalyzer with the shared data set and valid date range
+        mapPanelAnalyzer = new MapPanelAnalyzer(dataset, validStartDate, validEndDate);
+        mapController.setMapPanelAnalyzer(mapPanelAnalyzer);
+        statisticsController.setDataset(dataset);
+        lineChartController.setDataset(dataset);
+
+        configureDatePickers(); // Configure date pickers based on loaded data
+        startDatePicker.setDisable(false);
+        endDatePicker.setDisable(false);
+        setDataPanelsDisabled(false);
+
+        // Follow the csv file, so that rows appended to it show up in the panels.
+        dataset.addAppendListener(() -> Platform.runLater(this::handleCovidDataAppended));
+        if (dataTailer != null) {
+            try {
+                dataTailer.startWatching();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("Error: Watching the COVID data file was not successful");
+            }
         }
     }
 
+    /**
+     * Extends the selectable dates after rows have been appended to the data set,
+     * and recomputes the panels for the selected range. Called on the JavaFX
+     * Application Thread.
+     */
+    private void handleCovidDataAppended() {
+        validEndDate = dataset.getDateRange()[1];
+        configureDatePicker(startDatePicker, validStartDate, validEndDate);
+        configureDatePicker(endDatePicker, validStartDate, validEndDate);
+
+        LocalDate startDate = startDatePicker.getValue();
+        LocalDate endDate = endDatePicker.getValue();
+        if (startDate != null && endDate != null && !endDate.isBefore(startDate)) {
+            recomputePanels(startDate, endDate);
+        }
+    }
+
+    /**
+     * Disables or enables the map, statistics and line chart panels.
+     *
+     * @param disabled true to disable the panels.
+     */
+    private void setDataPanelsDisabled(boolean disabled) {
+        mapController.getView().setDisable(disabled);
+        statisticsController.getView().setDisable(disabled);
+        lineChartController.getView().setDisable(disabled);
+    }
+
     /**
      * Configures the date pickers to limit selections to valid dates based on the
      * loaded COVID data.
@@ -129,8 +251,11 @@ public class AppController {
         if (validStartDate != null && validEndDate != null) {
             configureDatePicker(startDatePicker, validStartDate, validEndDate);
             configureDatePicker(endDatePicker, validStartDate, validEndDate);
+            // Setting the initial values should not be treated as a range selection.
+            configuringDatePickers = true;
             startDatePicker.setValue(validStartDate);
             endDatePicker.setValue(validEndDate);
+            configuringDatePickers = false;
         }
     }
 
@@ -244,6 +369,9 @@ public class AppController {
      * Validates the selected date range and updates UI components accordingly.
      */
     private void validateDateRange() {
+        if (configuringDatePickers || dataset == null) {
+            return;
+        }
         LocalDate startDate = startDatePicker.getValue();
         LocalDate endDate = endDatePicker.getValue();
         boolean isDateRangeValid = startDate != null && endDate != null && !startDate.isBefore(validStartDate)
@@ -252,27 +380,76 @@ public class AppController {
         backButton.setDisable(!isDateRangeValid);
         forwardButton.setDisable(!isDateRangeValid);
         if (isDateRangeValid) {
-            mapPanelAnalyzer.updateDataRange(startDate, endDate);
-            if (mapController != null) {
-                mapController.updateMapVisualization(startDate, endDate);
-                if (statisticsController != null) {
-                    statisticsController.updateStatistics(startDate, endDate);
-                    if (lineChartController != null) {
-                        lineChartController.updateLineChart(startDate, endDate);
-                    } else {
-                        System.err.println("Error: LineChartController is not initializd");
-                    }
-                } else {
-                    System.err.println("Error: StatisticsController is not initializd");
-                }
-            } else {
+            if (mapController == null) {
                 System.err.println("Error: MapController is not initialized.");
+            } else if (statisticsController == null) {
+                System.err.println("Error: StatisticsController is not initializd");
+            } else if (lineChartController == null) {
+                System.err.println("Error: LineChartController is not initializd");
+            } else {
+                recomputePanels(startDate, endDate);
             }
         } else {
             showAlertDialog("Invalid Date Range", "Please select a valid date range(2020/2/3-2023/2/9).");
         }
     }
 
+    /**
+     * Recomputes the map, statistics and line chart for a new date range. The map
+     * and line chart are computed in parallel on background threads, and their
+     * results are applied to the panels together in one step on the JavaFX
+     * Application Thread, along with the new range of the statistics panel, which
+     * computes each statistic when it is shown.
+     * Computations for an earlier range that have not started are cancelled.
+     * Those already running check the range generation and stop at the next
+     * series of the line chart, or before the map is computed; any result of
+     * an earlier range that still completes is discarded.
+     * 
+     * @param startDate The start date of the new range.
+     * @param endDate   The end date of the new range.
+     */
+    private void recomputePanels(LocalDate startDate, LocalDate endDate) {
+        pendingRecomputation.forEach(future -> future.cancel(false));
+        long generation = ++rangeGeneration;
+        BooleanSupplier superseded = () -> generation != rangeGeneration;
+
+        CompletableFuture<MapPanelController.MapColoring> mapFuture = CompletableFuture.supplyAsync(() -> {
+            if (superseded.getAsBoolean()) {
+                throw new CancellationException("A newer date range has been selected");
+            }
+            return mapController.computeMapVisualization(startDate, endDate);
+        }, PANEL_EXECUTOR);
+        CompletableFuture<LineChartController.ChartData> lineChartFuture = CompletableFuture.supplyAsync(
+                () -> lineChartController.computeLineChart(startDate, endDate, superseded), PANEL_EXECUTOR);
+        pendingRecomputation = List.of(mapFuture, lineChartFuture);
+
+        CompletableFuture.allOf(mapFuture, lineChartFuture).whenComplete((ignored, error) -> {
+            if (error != null) {
+                if (!(unwrap(error) instanceof CancellationException)) {
+                    unwrap(error).printStackTrace();
+                    System.err.println("Error: Updating the panels for the selected date range was not successful");
+                }
+                return;
+            }
+            Platform.runLater(() -> {
+                if (generation != rangeGeneration) {
+                    return; // A newer date range has been selected in the meantime.
+                }
+                mapPanelAnalyzer.updateDataRange(startDate, endDate);
+                mapController.applyMapVisualization(mapFuture.join());
+                statisticsController.updateStatistics(startDate, endDate);
+                lineChartController.applyLineChart(lineChartFuture.join());
+            });
+        });
+    }
+
+    /**
+     * Returns the underlying cause of an exception thrown by a CompletableFuture.
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     /**
      * Configures a given DatePicker, restricting its selectable dates.
      * 
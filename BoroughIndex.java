@@ -0,0 +1,266 @@
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Partitions the rows of a CovidDataStore by borough. The rows of each borough
+ * are kept in date order, so the records of one borough within a date range
+ * are found with two binary searches and returned as a view, without looking
+ * at the rows of any other borough. When rows are appended to the store, the
+ * index is extended by the new rows rather than built again.
+ *
+ * Borough names are looked up after normalizing them, so "Waltham Forest",
+ * "waltham forest" and the button id style "Waltham_Forest" all name the same
+ * borough.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class BoroughIndex {
+    private final CovidDataStore store; // The store whose rows are indexed.
+
+    /*
+     * Row numbers of the store grouped by borough id: the rows of borough b are
+     * rows[b][0] to rows[b][counts[b] - 1], in date order. The arrays may be
+     * longer, and may be shared with the index this one was extended from or to.
+     */
+    private final int[][] rows;
+    private final int[] counts;
+
+    /*
+     * The number of rows written into the shared arrays. An extension may only
+     * write after them if it claims the arrays by moving this on from the size of
+     * the store it extends.
+     */
+    private final AtomicInteger rowsInUse;
+
+    private final Map<String, Integer> idsByName; // Normalized name to borough id.
+
+    /**
+     * Builds the index of a store.
+     *
+     * @param store The store to index.
+     */
+    public BoroughIndex(CovidDataStore store) {
+        this.store = store;
+        int boroughCount = store.getBoroughCount();
+        idsByName = new HashMap<>();
+        for (int id = 0; id < boroughCount; id++) {
+            idsByName.put(normalize(store.getBoroughName(id)), id);
+        }
+
+        // Count the rows of each borough, then place every row after the rows of
+        // its borough seen so far. The store is sorted by date, so each borough's
+        // rows stay in date order.
+        counts = new int[boroughCount];
+        for (int row = 0; row < store.size(); row++) {
+            counts[store.getBoroughId(row)]++;
+        }
+        rows = new int[boroughCount][];
+        for (int id = 0; id < boroughCount; id++) {
+            rows[id] = new int[counts[id]];
+        }
+        int[] next = new int[boroughCount];
+        for (int row = 0; row < store.size(); row++) {
+            int id = store.getBoroughId(row);
+            rows[id][next[id]++] = row;
+        }
+        rowsInUse = new AtomicInteger(store.size());
+    }
+
+    /**
+     * Creates the index of a store extending the store of another index.
+     */
+    private BoroughIndex(BoroughIndex source, CovidDataStore store, int[][] rows, int[] counts,
+            AtomicInteger rowsInUse) {
+        this.store = store;
+        this.rows = rows;
+        this.counts = counts;
+        this.rowsInUse = rowsInUse;
+        this.idsByName = source.idsByName;
+    }
+
+    /**
+     * Returns the index of a store holding the rows of the indexed store followed
+     * by new rows, such as the store returned by CovidDataStore.append. The
+     * arrays of each borough have room to spare, so the new rows are normally
+     * written after the ones already indexed, costing time in proportion to the
+     * new rows only. This index stays valid and unchanged.
+     *
+     * @param store The extended store, with the same borough dictionary.
+     * @return The index of the extended store.
+     * @throws IllegalArgumentException if the store has a different borough
+     *         dictionary or fewer rows.
+     */
+    public BoroughIndex extend(CovidDataStore store) {
+        int oldSize = this.store.size();
+        int newSize = store.size();
+        if (store.getBoroughCount() != counts.length || newSize < oldSize) {
+            throw new IllegalArgumentException("The store does not extend the indexed store");
+        }
+        int[] newCounts = counts.clone();
+        for (int row = oldSize; row < newSize; row++) {
+            newCounts[store.getBoroughId(row)]++;
+        }
+
+        int[][] newRows = rows.clone();
+        AtomicInteger newRowsInUse = rowsInUse;
+        boolean inPlace = rowsInUse.compareAndSet(oldSize, newSize);
+        if (!inPlace) {
+            newRowsInUse = new AtomicInteger(newSize);
+        }
+        for (int id = 0; id < counts.length; id++) {
+            if (!inPlace || newRows[id].length < newCounts[id]) {
+                // Grow the arrays geometrically, so that daily appends mostly fit.
+                newRows[id] = Arrays.copyOf(rows[id], Math.max(newCounts[id], 2 * counts[id]));
+            }
+        }
+
+        int[] next = counts.clone();
+        for (int row = oldSize; row < newSize; row++) {
+            int id = store.getBoroughId(row);
+            newRows[id][next[id]++] = row;
+        }
+        return new BoroughIndex(this, store, newRows, newCounts, newRowsInUse);
+    }
+
+    /**
+     * Turns a borough name into the form used for lookups: lower case, with
+     * underscores read as spaces and runs of spaces collapsed.
+     *
+     * @param boroughName The name to normalize.
+     * @return The normalized name.
+     */
+    public static String normalize(String boroughName) {
+        return boroughName.replace('_', ' ').trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the store this index was built from.
+     *
+     * @return The indexed store.
+     */
+    public CovidDataStore getStore() {
+        return store;
+    }
+
+    /**
+     * Looks up the id of a borough by name, ignoring case and treating
+     * underscores as spaces.
+     *
+     * @param boroughName The name of the borough.
+     * @return The borough id in the store's dictionary, or -1 if there is no such
+     *         borough.
+     */
+    public int getBoroughId(String boroughName) {
+        Integer id = idsByName.get(normalize(boroughName));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the records of a borough whose date falls within the given range,
+     * inclusive, in date order.
+     *
+     * @param boroughName The name of the borough, as accepted by getBoroughId.
+     * @param startDate   The start date of the range.
+     * @param endDate     The end date of the range.
+     * @return A read-only view of the borough's records, empty if the borough is
+     *         unknown.
+     */
+    public List<CovidData> getRecords(String boroughName, LocalDate startDate, LocalDate endDate) {
+        int id = getBoroughId(boroughName);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        return getRecords(id, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+    }
+
+    /**
+     * Returns the records of a borough whose epoch day falls within the given
+     * range, inclusive, in date order.
+     *
+     * @param boroughId The id of the borough in the store's dictionary.
+     * @param startDay  The first epoch day of the range.
+     * @param endDay    The last epoch day of the range.
+     * @return A read-only view of the borough's records.
+     */
+    public List<CovidData> getRecords(int boroughId, int startDay, int endDay) {
+        int from = firstOnOrAfter(boroughId, startDay);
+        int to = endDay < startDay ? from : firstOnOrAfter(boroughId, endDay + 1);
+        return new BoroughRows(rows[boroughId], from, to);
+    }
+
+    /**
+     * Finds the latest row of a borough whose epoch day falls within the given
+     * range, inclusive, without creating any record views.
+     *
+     * @param boroughId The id of the borough in the store's dictionary.
+     * @param startDay  The first epoch day of the range.
+     * @param endDay    The last epoch day of the range.
+     * @return The row number in the store, or -1 if the borough has no row in
+     *         the range.
+     */
+    public int getLatestRow(int boroughId, int startDay, int endDay) {
+        if (endDay < startDay) {
+            return -1;
+        }
+        int from = firstOnOrAfter(boroughId, startDay);
+        int to = firstOnOrAfter(boroughId, endDay + 1);
+        return to > from ? rows[boroughId][to - 1] : -1;
+    }
+
+    /**
+     * Finds the position in the borough's rows of its first row dated on or
+     * after the given day.
+     */
+    private int firstOnOrAfter(int boroughId, int day) {
+        int[] boroughRows = rows[boroughId];
+        int low = 0;
+        int high = counts[boroughId];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.getEpochDay(boroughRows[middle]) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A read-only list of consecutive entries of a borough's rows, handing out
+     * row views of the store.
+     */
+    private class BoroughRows extends AbstractList<CovidData> implements RandomAccess {
+        private final int[] boroughRows;
+        private final int from;
+        private final int to;
+
+        BoroughRows(int[] boroughRows, int from, int to) {
+            this.boroughRows = boroughRows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public CovidData get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return store.getRow(boroughRows[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
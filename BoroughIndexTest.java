@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the BoroughIndex class. It checks that
+ * borough names are matched regardless of case and underscores, and that date
+ * ranges resolve to the right records of a borough.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class BoroughIndexTest {
+    private BoroughIndex index;
+
+    /**
+     * Sets up an index over records of two boroughs before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        List<CovidData> covidDataList = new ArrayList<>();
+        covidDataList.add(new CovidData("2022-10-15", "Waltham Forest", 0, 0, 0, 0, 0, 0, 3, 100, 0, 10));
+        covidDataList.add(new CovidData("2022-10-13", "Barnet", 0, 0, 0, 0, 0, 0, 17, 72895, 0, 614));
+        covidDataList.add(new CovidData("2022-10-13", "Waltham Forest", 0, 0, 0, 0, 0, 0, 1, 97, 0, 10));
+        covidDataList.add(new CovidData("2022-10-14", "Barnet", 0, 0, 0, 0, 0, 0, 12, 72907, 0, 614));
+        covidDataList.add(new CovidData("2022-10-17", "Waltham Forest", 0, 0, 0, 0, 0, 0, 2, 102, 0, 11));
+        index = new BoroughIndex(CovidDataStore.fromRecords(covidDataList));
+    }
+
+    /**
+     * Tests that names are looked up ignoring case, underscores and extra spaces.
+     */
+    @Test
+    void getBoroughId_normalizesNames() {
+        int id = index.getBoroughId("Waltham Forest");
+        assertTrue(id >= 0);
+        assertEquals(id, index.getBoroughId("Waltham_Forest"));
+        assertEquals(id, index.getBoroughId(" waltham  FOREST "));
+        assertEquals(-1, index.getBoroughId("Bexley"));
+    }
+
+    /**
+     * Tests that only the borough's records within the range are returned, in
+     * date order.
+     */
+    @Test
+    void getRecords_returnsBoroughRowsWithinRange() {
+        List<CovidData> records = index.getRecords("Waltham_Forest", LocalDate.of(2022, 10, 14),
+                LocalDate.of(2022, 10, 31));
+        assertEquals(2, records.size());
+        assertEquals(LocalDate.of(2022, 10, 15), records.get(0).getDate());
+        assertEquals(LocalDate.of(2022, 10, 17), records.get(1).getDate());
+        assertEquals("Waltham Forest", records.get(1).getBorough());
+
+        assertEquals(2, index.getRecords("barnet", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)).size());
+        assertTrue(index.getRecords("Barnet", LocalDate.of(2022, 10, 15), LocalDate.of(2022, 10, 31)).isEmpty());
+        assertTrue(index.getRecords("Bexley", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)).isEmpty());
+    }
+
+    /**
+     * Tests that the latest row of a borough within a range is found, and that
+     * a range without rows of the borough has none.
+     */
+    @Test
+    void getLatestRow_findsLastRowWithinRange() {
+        CovidDataStore store = index.getStore();
+        int id = index.getBoroughId("Waltham Forest");
+        int row = index.getLatestRow(id, (int) LocalDate.of(2022, 10, 13).toEpochDay(),
+                (int) LocalDate.of(2022, 10, 16).toEpochDay());
+        assertEquals(LocalDate.of(2022, 10, 15), store.getDate(row));
+        assertEquals(100, store.getValue(CovidMetric.TOTAL_CASES, row));
+        assertEquals(-1, index.getLatestRow(id, (int) LocalDate.of(2022, 10, 16).toEpochDay(),
+                (int) LocalDate.of(2022, 10, 16).toEpochDay()));
+    }
+
+    /**
+     * Tests that extending an index by appended rows finds the same records as
+     * an index built from scratch, and that the index it was extended from, or a
+     * second extension of it, is not affected.
+     */
+    @Test
+    void extend_indexesAppendedRows() {
+        CovidDataStore store = index.getStore();
+        List<CovidData> newRecords = new ArrayList<>();
+        newRecords.add(new CovidData("2022-10-18", "Waltham Forest", 0, 0, 0, 0, 0, 0, 4, 106, 0, 11));
+        newRecords.add(new CovidData("2022-10-18", "Barnet", 0, 0, 0, 0, 0, 0, 9, 72916, 1, 615));
+        CovidDataStore appended = store.append(CovidDataStore.fromRecords(newRecords));
+        BoroughIndex extended = index.extend(appended);
+        BoroughIndex rebuilt = new BoroughIndex(appended);
+
+        LocalDate start = LocalDate.of(2022, 10, 1);
+        LocalDate end = LocalDate.of(2022, 10, 31);
+        for (String borough : List.of("Barnet", "Waltham Forest")) {
+            assertEquals(rebuilt.getRecords(borough, start, end).size(),
+                    extended.getRecords(borough, start, end).size(), borough);
+        }
+        assertEquals(LocalDate.of(2022, 10, 18), extended.getRecords("Barnet", start, end).get(2).getDate());
+        assertEquals(3, index.getRecords("Waltham Forest", start, end).size());
+
+        CovidDataStore otherAppended = store.append(CovidDataStore.fromRecords(newRecords.subList(1, 2)));
+        BoroughIndex other = index.extend(otherAppended);
+        assertEquals(3, other.getRecords("Waltham Forest", start, end).size());
+        assertEquals(4, extended.getRecords("Waltham Forest", start, end).size());
+        assertEquals(106, extended.getRecords("Waltham Forest", start, end).get(3).getTotalCases());
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Divides the values of a metric into colour buckets for the map, based on the
+ * values themselves rather than on fixed thresholds, so a map of a single day
+ * is as readable as a map of three years. The breaks between the buckets are
+ * computed from the per-borough values of one date range, with a linear, a
+ * logarithmic or a quantile scale.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class ColorScale {
+    /**
+     * The ways of placing the breaks between the buckets.
+     */
+    public enum Type {
+        /** Buckets of equal quantile, so each holds about as many boroughs. */
+        QUANTILE("Quantile"),
+        /** Buckets of equal width between the smallest and the largest value. */
+        LINEAR("Linear"),
+        /** Buckets of equal width on a logarithmic scale, for skewed values. */
+        LOG("Logarithmic");
+
+        private final String displayName;
+
+        Type(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    public static final int BUCKET_COUNT = 6; // Number of colour buckets, as in the map legend.
+
+    private final Type type;
+    private final long min; // Smallest value the scale was computed from.
+    private final long max; // Largest value the scale was computed from.
+    private final long[] breaks; // Smallest value of each bucket after the first, ascending.
+
+    private ColorScale(Type type, long min, long max, long[] breaks) {
+        this.type = type;
+        this.min = min;
+        this.max = max;
+        this.breaks = breaks;
+    }
+
+    /**
+     * Computes a scale from the per-borough values of a metric. The smallest and
+     * largest values are found in a single pass, which for a quantile scale also
+     * collects the values to be sorted.
+     *
+     * @param type   The kind of scale.
+     * @param values The value of every borough, indexed by borough id.
+     * @param counts The number of records behind every value, indexed like
+     *               values. Boroughs with no records are left out. May be null
+     *               to use every value.
+     * @return The new scale.
+     */
+    public static ColorScale of(Type type, long[] values, int[] counts) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long[] present = new long[values.length];
+        int presentCount = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (counts == null || counts[i] > 0) {
+                long value = values[i];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                present[presentCount++] = value;
+            }
+        }
+        if (presentCount == 0) {
+            min = 0;
+            max = 0;
+        }
+
+        long[] breaks = new long[BUCKET_COUNT - 1];
+        if (type == Type.QUANTILE) {
+            Arrays.sort(present, 0, presentCount);
+            for (int b = 1; b < BUCKET_COUNT && presentCount > 0; b++) {
+                breaks[b - 1] = present[presentCount * b / BUCKET_COUNT];
+            }
+        } else {
+            double range = (double) max - min;
+            for (int b = 1; b < BUCKET_COUNT; b++) {
+                double fraction = (double) b / BUCKET_COUNT;
+                if (type == Type.LINEAR) {
+                    breaks[b - 1] = min + (long) Math.ceil(range * fraction);
+                } else {
+                    // Equal steps of log(value - min + 1), so the smallest value maps to 0.
+                    breaks[b - 1] = min - 1 + (long) Math.ceil(Math.exp(Math.log1p(range) * fraction));
+                }
+            }
+        }
+        // The smallest value always starts the first bucket, even where many
+        // boroughs share it or all values are equal.
+        for (int b = 0; b < breaks.length; b++) {
+            breaks[b] = Math.max(breaks[b], min + 1);
+        }
+        return new ColorScale(type, min, max, breaks);
+    }
+
+    /**
+     * Returns the bucket a value falls into.
+     *
+     * @param value The value to classify.
+     * @return The bucket, from 0 for the smallest values to BUCKET_COUNT - 1.
+     */
+    public int bucketOf(long value) {
+        int bucket = 0;
+        while (bucket < breaks.length && value >= breaks[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Returns the smallest value of a bucket. Bucket 0 starts at the smallest
+     * value the scale was computed from.
+     *
+     * @param bucket The bucket, from 0 to BUCKET_COUNT - 1.
+     * @return The lower bound of the bucket, inclusive.
+     */
+    public long getLowerBound(int bucket) {
+        return bucket == 0 ? min : breaks[bucket - 1];
+    }
+
+    /**
+     * Returns the kind of the scale.
+     *
+     * @return The scale type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the smallest value the scale was computed from.
+     *
+     * @return The minimum, or 0 if there were no values.
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the largest value the scale was computed from.
+     *
+     * @return The maximum, or 0 if there were no values.
+     */
+    public long getMax() {
+        return max;
+    }
+}
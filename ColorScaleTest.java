@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the ColorScale class. It checks the breaks
+ * of the quantile, linear and logarithmic scales, and that boroughs without
+ * records are left out.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class ColorScaleTest {
+    /**
+     * Tests that a quantile scale spreads the values evenly over the buckets and
+     * ignores values without records.
+     */
+    @Test
+    void quantile_spreadsValuesOverBuckets() {
+        long[] values = { 1, 2, 3, 4, 5, 6, 1000, 7 };
+        int[] counts = { 1, 1, 1, 1, 1, 1, 0, 1 };
+        ColorScale scale = ColorScale.of(ColorScale.Type.QUANTILE, values, counts);
+        assertEquals(1, scale.getMin());
+        assertEquals(7, scale.getMax());
+        assertEquals(0, scale.bucketOf(1));
+        assertEquals(ColorScale.BUCKET_COUNT - 1, scale.bucketOf(7));
+        for (int i = 1; i < 7; i++) {
+            assertTrue(scale.bucketOf(i) <= scale.bucketOf(i + 1));
+        }
+    }
+
+    /**
+     * Tests the breaks of the linear and logarithmic scales.
+     */
+    @Test
+    void linearAndLog_placeBreaksOverRange() {
+        long[] values = { 0, 600 };
+        ColorScale linear = ColorScale.of(ColorScale.Type.LINEAR, values, null);
+        assertEquals(100, linear.getLowerBound(1));
+        assertEquals(500, linear.getLowerBound(5));
+        assertEquals(2, linear.bucketOf(250));
+
+        ColorScale log = ColorScale.of(ColorScale.Type.LOG, values, null);
+        assertTrue(log.getLowerBound(1) < 10);
+        assertEquals(ColorScale.BUCKET_COUNT - 1, log.bucketOf(600));
+        assertEquals(0, log.bucketOf(0));
+    }
+
+    /**
+     * Tests that equal values all fall into the first bucket.
+     */
+    @Test
+    void equalValues_fallIntoFirstBucket() {
+        long[] values = { 0, 0, 0, 0 };
+        for (ColorScale.Type type : ColorScale.Type.values()) {
+            assertEquals(0, ColorScale.of(type, values, null).bucketOf(0));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Csv text and files in the layout of the Covid London data set, shared by the
+ * unit tests that parse, load, snapshot or follow csv files.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+final class CovidCsvFixture {
+    /**
+     * The header line of the Covid London data set.
+     */
+    static final String HEADER = "date,borough,retail_and_recreation,grocery_and_pharmacy,parks,"
+            + "transit_stations,workplaces,residential,new_cases,total_cases,new_deaths,total_deaths\n";
+
+    private CovidCsvFixture() {
+    }
+
+    /**
+     * Returns csv text made of the header followed by the given lines.
+     *
+     * @param lines The data lines after the header.
+     * @return The csv text.
+     */
+    static String csv(String lines) {
+        return HEADER + lines;
+    }
+
+    /**
+     * Writes a csv file made of the header followed by the given lines.
+     *
+     * @param directory The directory to write the file in.
+     * @param name      The name of the file.
+     * @param lines     The data lines after the header.
+     * @return The path of the written file.
+     * @throws IOException if the file cannot be written.
+     */
+    static Path write(Path directory, String name, String lines) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, csv(lines));
+        return file;
+    }
+}
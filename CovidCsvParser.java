@@ -0,0 +1,411 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses the Covid London csv layout straight from the bytes of the file into
+ * the columns of a CovidDataStore.Builder. The file is memory-mapped and every
+ * field is decoded in place, so no String is created per line or per cell; the
+ * only objects made while parsing are one String per distinct borough name.
+ *
+ * The expected layout is the one of covid_london.csv: a header row followed by
+ * rows of a yyyy-MM-dd date, a borough name and the metric columns in
+ * CovidMetric order. As with CovidDataLoader, an empty metric field counts as
+ * 0.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CovidCsvParser {
+    /*
+     * Largest part of a file that is mapped at once. Files bigger than this are
+     * parsed window by window, each window ending on a line break.
+     */
+    private static final int MAX_WINDOW = 1 << 30;
+
+    private static final int FIELD_COUNT = 2 + CovidMetric.COUNT;
+
+    private static final int PROGRESS_INTERVAL = 1 << 18; // Bytes parsed between progress reports.
+
+    private final CovidDataStore.Builder builder; // Receives the parsed rows.
+    private final int[] values = new int[CovidMetric.COUNT]; // Metric values of the row being parsed.
+    private int lineNumber; // Line currently parsed, for error messages.
+
+    /*
+     * Listener told about the progress of parse(Path), which may be null, the
+     * file offset of the current window and the size of the file.
+     */
+    private CovidDataLoader.ProgressListener progressListener;
+    private long windowOffset;
+    private long totalBytes;
+
+    /*
+     * Small open-addressing table of the borough names seen so far, keyed by a
+     * hash of their bytes, so that a name is only turned into a String once.
+     */
+    private byte[][] nameBytes = new byte[64][];
+    private String[] names = new String[64];
+    private int nameCount;
+
+    /*
+     * The date field of the previous row and its epoch day. Rows of the same day
+     * are usually next to each other, so most dates need no conversion.
+     */
+    private int lastDateKey = -1;
+    private int lastEpochDay;
+
+    /**
+     * Creates a parser that adds the rows it reads to a builder.
+     *
+     * @param builder The builder receiving the rows.
+     */
+    public CovidCsvParser(CovidDataStore.Builder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Sets the listener told how many bytes have been parsed while a file is
+     * parsed.
+     *
+     * @param progressListener The listener, or null for none.
+     */
+    public void setProgressListener(CovidDataLoader.ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Parses a csv file, skipping its header row.
+     *
+     * @param file The csv file to parse.
+     * @throws IOException if the file cannot be read.
+     */
+    public void parse(Path file) throws IOException {
+        parse(file, 0, true);
+    }
+
+    /**
+     * Parses the lines of a csv file from a byte offset onwards, such as the rows
+     * appended since the file was last read. The header row is only skipped when
+     * parsing from offset 0. A last line without a line break may still be being
+     * written, so it is left for a later call.
+     *
+     * @param file   The csv file to parse.
+     * @param offset The offset of the first line to parse.
+     * @return The offset just after the last line parsed, from where the next
+     *         call should continue.
+     * @throws IOException if the file cannot be read.
+     */
+    public long parseFrom(Path file, long offset) throws IOException {
+        return parse(file, offset, false);
+    }
+
+    /**
+     * Parses a csv file window by window from an offset, returning the offset
+     * after the last line parsed.
+     */
+    private long parse(Path file, long offset, boolean toEnd) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = offset;
+            boolean header = offset == 0;
+            totalBytes = size;
+            while (position < size) {
+                windowOffset = position;
+                long length = Math.min(MAX_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean atEnd = position + length == size;
+                int consumed = parse(buffer, header, toEnd && atEnd);
+                if (consumed == 0) {
+                    if (atEnd && !toEnd) {
+                        break; // only an unfinished line is left
+                    }
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than " + MAX_WINDOW + " bytes");
+                }
+                header = false;
+                position += consumed;
+            }
+            if (progressListener != null) {
+                progressListener.progress(size, size);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Parses the lines held in a buffer, from its position to its limit.
+     *
+     * @param buffer     The bytes to parse.
+     * @param skipHeader Whether the first line is a header row.
+     * @param last       Whether the buffer ends at the end of the input. If not,
+     *                   an unterminated last line is left unparsed.
+     * @return The number of bytes consumed.
+     */
+    public int parse(ByteBuffer buffer, boolean skipHeader, boolean last) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (!last) {
+            // Only parse complete lines; the rest is parsed with the next window.
+            while (limit > position && buffer.get(limit - 1) != '\n') {
+                limit--;
+            }
+        }
+
+        if (skipHeader) {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position = Math.min(limit, position + 1);
+            lineNumber++;
+        }
+
+        int nextReport = position + PROGRESS_INTERVAL;
+        while (position < limit) {
+            position = parseLine(buffer, position, limit);
+            if (position >= nextReport && progressListener != null) {
+                progressListener.progress(windowOffset + position, totalBytes);
+                nextReport = position + PROGRESS_INTERVAL;
+            }
+        }
+        position = Math.min(position, limit); // the last line may have no line break
+        int consumed = position - buffer.position();
+        buffer.position(position);
+        return consumed;
+    }
+
+    /**
+     * Parses one line starting at the given position and returns the position of
+     * the next line.
+     */
+    private int parseLine(ByteBuffer buffer, int position, int limit) {
+        lineNumber++;
+        int lineEnd = position;
+        while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        int next = lineEnd + 1;
+        if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        if (lineEnd == position) {
+            return next; // skip blank lines
+        }
+
+        int fieldStart = position;
+        int epochDay = 0;
+        String borough = null;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if (fieldStart > lineEnd) {
+                throw new IllegalArgumentException("Line " + lineNumber + " has only " + field + " fields");
+            }
+            int fieldEnd = fieldEnd(buffer, fieldStart, lineEnd);
+            int from = fieldStart;
+            int to = fieldEnd;
+            if (to - from >= 2 && buffer.get(from) == '"' && buffer.get(to - 1) == '"') {
+                from++;
+                to--;
+            }
+            if (field == 0) {
+                epochDay = parseDate(buffer, from, to);
+            } else if (field == 1) {
+                borough = boroughName(buffer, from, to);
+            } else {
+                values[field - 2] = parseInt(buffer, from, to);
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        builder.addRow(epochDay, borough, values);
+        return next;
+    }
+
+    /**
+     * Finds the end of the field starting at the given position, allowing commas
+     * within double quotes.
+     */
+    private static int fieldEnd(ByteBuffer buffer, int position, int lineEnd) {
+        boolean quoted = false;
+        while (position < lineEnd) {
+            byte b = buffer.get(position);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == ',' && !quoted) {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date into an epoch day.
+     */
+    private int parseDate(ByteBuffer buffer, int from, int to) {
+        if (to - from != 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+            throw new IllegalArgumentException("Line " + lineNumber + " does not start with a yyyy-MM-dd date");
+        }
+        int year = digits(buffer, from, from + 4);
+        int month = digits(buffer, from + 5, from + 7);
+        int day = digits(buffer, from + 8, from + 10);
+        int key = (year * 100 + month) * 100 + day;
+        if (key != lastDateKey) {
+            lastEpochDay = epochDay(year, month, day);
+            lastDateKey = key;
+        }
+        return lastEpochDay;
+    }
+
+    /**
+     * Reads a run of decimal digits.
+     */
+    private int digits(ByteBuffer buffer, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Line " + lineNumber + " has an invalid date");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses an integer field, treating an empty or blank field as 0.
+     */
+    private int parseInt(ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        if (from == to) {
+            return 0;
+        }
+
+        boolean negative = buffer.get(from) == '-';
+        if (negative || buffer.get(from) == '+') {
+            from++;
+        }
+        if (from == to) {
+            throw new NumberFormatException("Line " + lineNumber + " has a sign without digits");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Line " + lineNumber + " has a field that is not an integer");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Line " + lineNumber + " has an integer out of range");
+            }
+        }
+        if (!negative && value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Line " + lineNumber + " has an integer out of range");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Returns the borough name held in the given bytes, reusing the String made
+     * the first time the name was seen.
+     */
+    private String boroughName(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        int hash = length;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            if (sameBytes(nameBytes[slot], buffer, from, length)) {
+                return names[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        String name = new String(bytes, StandardCharsets.UTF_8).replace("\"\"", "\"");
+        nameBytes[slot] = bytes;
+        names[slot] = name;
+        nameCount++;
+        if (nameCount * 2 > names.length) {
+            growNameTable();
+        }
+        return name;
+    }
+
+    /**
+     * Compares stored name bytes with bytes of the buffer.
+     */
+    private static boolean sameBytes(byte[] bytes, ByteBuffer buffer, int from, int length) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Doubles the size of the borough name table.
+     */
+    private void growNameTable() {
+        byte[][] oldBytes = nameBytes;
+        String[] oldNames = names;
+        nameBytes = new byte[oldBytes.length * 2][];
+        names = new String[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                byte[] bytes = oldBytes[i];
+                int hash = bytes.length;
+                for (byte b : bytes) {
+                    hash = 31 * hash + b;
+                }
+                int slot = hash & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                nameBytes[slot] = bytes;
+                names[slot] = oldNames[i];
+            }
+        }
+    }
+
+    /**
+     * Converts a date of the proleptic Gregorian calendar into a number of days
+     * since 1970-01-01, without creating a LocalDate.
+     *
+     * @param year  The year.
+     * @param month The month, from 1 to 12.
+     * @param day   The day of the month.
+     * @return The epoch day of the date.
+     */
+    static int epochDay(int year, int month, int day) {
+        boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int monthLength = month == 2 ? (leapYear ? 29 : 28) : 30 + ((month + month / 8) & 1);
+        if (month < 1 || month > 12 || day < 1 || day > monthLength) {
+            throw new IllegalArgumentException("Invalid date " + year + "-" + month + "-" + day);
+        }
+        // Count years from March so that the leap day falls at the end of a year.
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CovidCsvParser class. It checks that
+ * rows parsed from raw bytes match what the opencsv based loader produces,
+ * including empty fields, quoted fields and Windows line endings.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CovidCsvParserTest {
+    /**
+     * Parses the given csv text into a store.
+     */
+    private CovidDataStore parse(String csv) {
+        CovidDataStore.Builder builder = new CovidDataStore.Builder();
+        ByteBuffer buffer = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+        new CovidCsvParser(builder).parse(buffer, true, true);
+        return builder.build();
+    }
+
+    /**
+     * Tests that a plain row is parsed into the right columns.
+     */
+    @Test
+    void parse_readsAllColumns() {
+        CovidDataStore store = parse(
+                CovidCsvFixture.csv("2022-10-15,Kingston Upon Thames,-20,-3,69,-5,-1,1,11,64560,1,426\n"));
+        assertEquals(1, store.size());
+        assertEquals(LocalDate.of(2022, 10, 15), store.getDate(0));
+        assertEquals("Kingston Upon Thames", store.getBorough(0));
+        assertEquals(-20, store.getValue(CovidMetric.RETAIL_RECREATION_GMR, 0));
+        assertEquals(69, store.getValue(CovidMetric.PARKS_GMR, 0));
+        assertEquals(64560, store.getValue(CovidMetric.TOTAL_CASES, 0));
+        assertEquals(426, store.getValue(CovidMetric.TOTAL_DEATHS, 0));
+    }
+
+    /**
+     * Tests that empty fields count as 0 and that CRLF, quotes and a missing
+     * final line break are handled.
+     */
+    @Test
+    void parse_handlesEmptyFieldsQuotesAndLineEndings() {
+        CovidDataStore store = parse(CovidCsvFixture.csv("2020-02-03,\"Barnet\",,,, ,,,0,0,0,0\r\n\r\n"
+                + "2020-02-04,\"Barking, Dagenham\",1,2,3,4,5,6,7,8,9,10"));
+        assertEquals(2, store.size());
+        assertEquals("Barnet", store.getBorough(0));
+        assertEquals(0, store.getValue(CovidMetric.TRANSIT_GMR, 0));
+        assertEquals("Barking, Dagenham", store.getBorough(1));
+        assertEquals(10, store.getValue(CovidMetric.TOTAL_DEATHS, 1));
+    }
+
+    /**
+     * Tests that a field that is not a number is reported.
+     */
+    @Test
+    void parse_rejectsInvalidNumbers() {
+        assertThrows(NumberFormatException.class,
+                () -> parse(CovidCsvFixture.csv("2020-02-03,Barnet,1,2,x,4,5,6,7,8,9,10\n")));
+    }
+
+    /**
+     * Tests the date conversion against LocalDate over several leap years.
+     */
+    @Test
+    void epochDay_matchesLocalDate() {
+        for (LocalDate date = LocalDate.of(1999, 1, 1); date.getYear() < 2026; date = date.plusDays(1)) {
+            assertEquals(date.toEpochDay(),
+                    CovidCsvParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CovidCsvParser.epochDay(2021, 2, 29));
+    }
+}
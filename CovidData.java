@@ -8,6 +8,11 @@ import java.time.format.DateTimeFormatter;
 
 public class CovidData {
 
+    /*
+     * Format of the dates in the csv file, shared by all records
+     */
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
     /*
      * The date the COVID information (cases & deaths) was collected
      */
@@ -38,11 +43,17 @@ public class CovidData {
     private int workplacesGMR;
     private int residentialGMR;
 
+    /**
+     * Constructor for subclasses that supply their values through the accessors
+     * instead of the fields, such as the row views of a CovidDataStore.
+     */
+    protected CovidData() {
+    }
+
     public CovidData(String date, String borough, int retailRecreationGMR, int groceryPharmacyGMR, int parksGMR,
             int transitGMR, int workplacesGMR, int residentialGMR, int newCases, int totalCases, int newDeaths,
             int totalDeaths) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        this.date = LocalDate.parse(date, formatter);
+        this.date = LocalDate.parse(date, DATE_FORMATTER);
 
         this.borough = borough;
         this.retailRecreationGMR = retailRecreationGMR;
@@ -107,12 +118,12 @@ public class CovidData {
 
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        return "Covid Record {" + " date='" + date.format(formatter) + '\'' + // Convert LocalDate back to String for
-                                                                              // display
-                ", borough='" + borough + '\'' + ", retailRecreationGMR=" + retailRecreationGMR
-                + ", groceryPharmacyGMR=" + groceryPharmacyGMR + ", parksGMR=" + parksGMR + ", transitGMR=" + transitGMR
-                + ", workplacesGMR=" + workplacesGMR + ", residentialGMR=" + residentialGMR + ", newCases=" + newCases
-                + ", totalCases=" + totalCases + ", newDeaths=" + newDeaths + ", totalDeaths=" + totalDeaths + "}";
+        return "Covid Record {" + " date='" + getDate().format(DATE_FORMATTER) + '\'' + // Convert LocalDate back to String
+                                                                                   // for display
+                ", borough='" + getBorough() + '\'' + ", retailRecreationGMR=" + getRetailRecreationGMR()
+                + ", groceryPharmacyGMR=" + getGroceryPharmacyGMR() + ", parksGMR=" + getParksGMR() + ", transitGMR="
+                + getTransitGMR() + ", workplacesGMR=" + getWorkplacesGMR() + ", residentialGMR=" + getResidentialGMR()
+                + ", newCases=" + getNewCases() + ", totalCases=" + getTotalCases() + ", newDeaths=" + getNewDeaths()
+                + ", totalDeaths=" + getTotalDeaths() + "}";
     }
 }
@@ -1,67 +1,316 @@
 import java.io.File;
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.opencsv.CSVReader;
 
 public class CovidDataLoader {
-    private ArrayList<CovidData> records = new ArrayList<>();
+    /**
+     * The ways the csv file can be read.
+     */
+    public enum IngestionMode {
+        /** Read the file line by line through opencsv. This is the default. */
+        OPENCSV,
+        /**
+         * Memory-map the file and parse its bytes directly into columns. Faster on
+         * large files, but must be selected explicitly.
+         */
+        MAPPED
+    }
+
+    /**
+     * Receives updates on how much of a csv file has been read.
+     */
+    public interface ProgressListener {
+        /**
+         * Called from the loading thread as the file is read. When several files
+         * are loaded in parallel, it is called from each of the parsing threads
+         * with the bytes read over all files.
+         *
+         * @param bytesRead  The number of bytes read so far.
+         * @param totalBytes The size of the file in bytes.
+         */
+        void progress(long bytesRead, long totalBytes);
+    }
+
+    private IngestionMode ingestionMode = IngestionMode.OPENCSV;
+    private boolean snapshotsEnabled = true; // Whether parsed files are cached as binary snapshots.
+    private ProgressListener progressListener; // Notified while a file is read, may be null.
+
+    /**
+     * Selects how the csv file is read by later calls to load and loadStore.
+     * Files are read through opencsv unless MAPPED is selected here.
+     *
+     * @param ingestionMode The way to read the file.
+     */
+    public void setIngestionMode(IngestionMode ingestionMode) {
+        this.ingestionMode = ingestionMode;
+    }
+
+    /**
+     * Selects whether later loads use and write binary snapshots of the parsed csv
+     * file. With snapshots enabled, a file is only parsed again once it has
+     * changed.
+     *
+     * @param snapshotsEnabled true to use snapshots.
+     */
+    public void setSnapshotsEnabled(boolean snapshotsEnabled) {
+        this.snapshotsEnabled = snapshotsEnabled;
+    }
+
+    /**
+     * Sets the listener notified while later loads read a csv file. Progress is
+     * reported in both ingestion modes and when a snapshot is loaded.
+     *
+     * @param progressListener The listener, or null for none.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
     /**
      * Return an ArrayList containing the rows in the Covid London data set csv
      * file.
      */
     public ArrayList<CovidData> load() {
-        records.clear();
+        return new ArrayList<>(loadStore().rows());
+    }
+
+    /**
+     * Return a column oriented store containing the rows in the Covid London data
+     * set csv file.
+     */
+    public CovidDataStore loadStore() {
+        CovidDataStore store = new CovidDataStore.Builder().build();
         // System.out.println("Begin loading Covid London dataset...");
         try {
-            URL url = getClass().getResource("covid_london.csv");
-            CSVReader reader = new CSVReader(new FileReader(new File(url.toURI()).getAbsolutePath()));
+            store = loadStore(getDataFile());
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+            System.err.println("Error: Loading the COVID data file was not successful: " + e.getMessage());
+        }
+        // System.out.println("Number of Loaded Records: " + store.size());
+        return store;
+    }
+
+    /**
+     * Return the path of the Covid London data set csv file, which is read by
+     * load and loadStore().
+     *
+     * @throws URISyntaxException if the file's location is not a valid path.
+     */
+    public static Path getDataFile() throws URISyntaxException {
+        URL url = CovidDataLoader.class.getResource("covid_london.csv");
+        return new File(url.toURI()).toPath();
+    }
+
+    /**
+     * Return a column oriented store containing the rows of the given csv file,
+     * which must have the layout of the Covid London data set. If snapshots are
+     * enabled, a valid snapshot of the file is loaded instead of parsing it, and a
+     * new snapshot is written after parsing. If the path is a directory, every csv
+     * file in it is loaded, as by loadStore(directory, "*.csv").
+     *
+     * @param file The csv file, or directory of csv files, to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public CovidDataStore loadStore(Path file) throws IOException {
+        if (Files.isDirectory(file)) {
+            return loadStore(file, "*.csv");
+        }
+        return loadFile(file, progressListener);
+    }
+
+    /**
+     * Return a column oriented store containing the rows of every file in a
+     * directory whose name matches a glob pattern, such as "covid_2021-*.csv".
+     * The files are loaded as by loadStore(List).
+     *
+     * @param directory The directory holding the csv files.
+     * @param glob      The pattern the file names must match.
+     * @throws IOException if the directory or one of the files cannot be read.
+     */
+    public CovidDataStore loadStore(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return loadStore(files);
+    }
+
+    /**
+     * Return a column oriented store containing the rows of several csv files
+     * with the layout of the Covid London data set. The files are parsed in
+     * parallel, one task per file, and then merged. Where more than one row has
+     * the same date and borough, the row from the file whose path sorts last is
+     * kept, or the last such row within that file, so the result does not depend
+     * on the order in which the files were given or finished parsing.
+     *
+     * @param files The csv files to read.
+     * @throws IOException if one of the files cannot be read.
+     */
+    public CovidDataStore loadStore(List<Path> files) throws IOException {
+        List<Path> sortedFiles = new ArrayList<>(files);
+        Collections.sort(sortedFiles);
+
+        long totalBytes = 0;
+        for (Path file : sortedFiles) {
+            totalBytes += Files.size(file);
+        }
+        long allBytes = totalBytes;
+        AtomicLong bytesRead = new AtomicLong();
+
+        List<ForkJoinTask<CovidDataStore>> tasks = new ArrayList<>();
+        for (Path file : sortedFiles) {
+            ProgressListener fileListener = null;
+            if (progressListener != null) {
+                // Turns the progress within one file into progress over all files.
+                long[] fileBytesRead = new long[1];
+                fileListener = (read, size) -> {
+                    long delta = read - fileBytesRead[0];
+                    fileBytesRead[0] = read;
+                    progressListener.progress(bytesRead.addAndGet(delta), allBytes);
+                };
+            }
+            ProgressListener listener = fileListener;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> loadFile(file, listener)));
+        }
+
+        CovidDataStore.Builder builder = new CovidDataStore.Builder().setDeduplicate(true);
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                builder.addStore(tasks.get(i).get());
+            } catch (InterruptedException e) {
+                tasks.forEach(task -> task.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading " + sortedFiles.get(i));
+            } catch (ExecutionException e) {
+                tasks.forEach(task -> task.cancel(true));
+                throw new IOException("Could not load " + sortedFiles.get(i), e.getCause());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Loads a single csv file, from its snapshot if there is a valid one.
+     */
+    private CovidDataStore loadFile(Path file, ProgressListener listener) throws IOException {
+        if (snapshotsEnabled) {
+            CovidDataStore snapshot = CovidDataSnapshot.read(file);
+            if (snapshot != null) {
+                if (listener != null) {
+                    listener.progress(Files.size(file), Files.size(file));
+                }
+                return snapshot;
+            }
+        }
+
+        CovidDataStore.Builder builder = new CovidDataStore.Builder();
+        parse(file, builder, listener);
+        CovidDataStore store = builder.build();
+        if (snapshotsEnabled) {
+            try {
+                CovidDataSnapshot.write(file, store);
+            } catch (IOException e) {
+                // The snapshot only speeds up the next start, so loading still succeeds.
+                System.err.println("Could not write a snapshot of " + file + ": " + e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Reads the rows of a csv file into a builder, using the selected ingestion
+     * mode.
+     */
+    private void parse(Path file, CovidDataStore.Builder builder, ProgressListener listener) throws IOException {
+        if (ingestionMode == IngestionMode.MAPPED) {
+            CovidCsvParser parser = new CovidCsvParser(builder);
+            parser.setProgressListener(listener);
+            parser.parse(file);
+            return;
+        }
+
+        long totalBytes = Files.size(file);
+        InputStream input = new CountingInputStream(Files.newInputStream(file), totalBytes, listener);
+        try (CSVReader reader = new CSVReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
             String[] line;
+            int[] values = new int[CovidMetric.COUNT];
             // skip the first row (column headers)
             reader.readNext();
             while ((line = reader.readNext()) != null) {
-
-                String date = line[0];
+                int date = (int) LocalDate.parse(line[0]).toEpochDay();
                 String borough = line[1];
-                int retailRecreationGMR = convertInt(line[2]);
-                int groceryPharmacyGMR = convertInt(line[3]);
-                int parksGMR = convertInt(line[4]);
-                int transitGMR = convertInt(line[5]);
-                int workplacesGMR = convertInt(line[6]);
-                int residentialGMR = convertInt(line[7]);
-                int newCases = convertInt(line[8]);
-                int totalCases = convertInt(line[9]);
-                int newDeaths = convertInt(line[10]);
-                int totalDeaths = convertInt(line[11]);
-
-                CovidData record = new CovidData(date, borough, retailRecreationGMR, groceryPharmacyGMR, parksGMR,
-                        transitGMR, workplacesGMR, residentialGMR, newCases, totalCases, newDeaths, totalDeaths);
-                records.add(record);
+                // the metric columns follow the borough, in CovidMetric order
+                for (int c = 0; c < CovidMetric.COUNT; c++) {
+                    values[c] = convertInt(line[c + 2]);
+                }
+                builder.addRow(date, borough, values);
             }
-        } catch (IOException | URISyntaxException e) {
-            System.out.println("Something Went Wrong?!");
-            e.printStackTrace();
         }
-        // System.out.println("Number of Loaded Records: " + records.size());
-        return records;
     }
 
     /**
-     *
-     * @param doubleString the string to be converted to Double type
-     * @return the Double value of the string, or -1.0 if the string is either empty
-     *         or just whitespace
+     * Counts the bytes read from a stream and reports them to a progress
+     * listener, which may be null.
      */
-    private Double convertDouble(String doubleString) {
-        if (doubleString != null && !doubleString.trim().equals("")) {
-            return Double.parseDouble(doubleString);
+    private static class CountingInputStream extends FilterInputStream {
+        private final long totalBytes;
+        private final ProgressListener listener;
+        private long bytesRead;
+
+        CountingInputStream(InputStream in, long totalBytes, ProgressListener listener) {
+            super(in);
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            bytesRead += n;
+            if (listener != null) {
+                listener.progress(bytesRead, totalBytes);
+            }
         }
-        return (double) 0;
     }
 
     /**
@@ -77,20 +326,4 @@ public class CovidDataLoader {
         return 0;
     }
 
-    public LocalDate[] getDateRange() {
-        LocalDate minDate = LocalDate.MAX;
-        LocalDate maxDate = LocalDate.MIN;
-
-        for (CovidData record : records) {
-            LocalDate date = record.getDate();
-            if (date.isBefore(minDate)) {
-                minDate = date;
-            }
-            if (date.isAfter(maxDate)) {
-                maxDate = date;
-            }
-        }
-        return new LocalDate[] { minDate, maxDate };
-    }
-
 }
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the CovidDataLoader class. It checks that
+ * a directory of csv files is loaded into one store, with duplicate rows
+ * resolved in favour of the file that sorts last, and that both ingestion
+ * modes read a file alike.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CovidDataLoaderTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that every matching file in a directory is merged, and that a later
+     * file overrides a row of an earlier one.
+     */
+    @Test
+    void loadStore_mergesDirectory() throws IOException {
+        CovidCsvFixture.write(directory, "covid_2022-02.csv",
+                "2022-02-01,Barnet,0,0,0,0,0,0,7,107,0,10\n" + "2022-01-31,Barnet,0,0,0,0,0,0,3,100,1,10\n");
+        CovidCsvFixture.write(directory, "covid_2022-01.csv",
+                "2022-01-31,Barnet,0,0,0,0,0,0,5,100,1,10\n" + "2022-01-30,Bexley,0,0,0,0,0,0,2,50,0,4\n");
+        Files.writeString(directory.resolve("notes.txt"), "not a csv file");
+
+        for (CovidDataLoader.IngestionMode mode : CovidDataLoader.IngestionMode.values()) {
+            CovidDataLoader loader = new CovidDataLoader();
+            loader.setIngestionMode(mode);
+            loader.setSnapshotsEnabled(false);
+            CovidDataStore store = loader.loadStore(directory);
+
+            assertEquals(3, store.size());
+            assertEquals(LocalDate.of(2022, 1, 30), store.getDate(0));
+            assertEquals("Bexley", store.getBorough(0));
+            assertEquals(LocalDate.of(2022, 1, 31), store.getDate(1));
+            assertEquals(3, store.getValue(CovidMetric.NEW_CASES, 1));
+            assertEquals(7, store.getValue(CovidMetric.NEW_CASES, 2));
+        }
+    }
+
+    /**
+     * Tests that both ingestion modes read a file with empty and quoted fields
+     * into identical stores, and report reading the whole file.
+     */
+    @Test
+    void loadStore_ingestionModesAgree() throws IOException {
+        Path file = CovidCsvFixture.write(directory, "covid.csv", "2022-02-01,Barnet,-15,6,,-8,-31,3,17,72895,0,614\n"
+                + "2022-01-31,\"Kingston Upon Thames\",,,,,,,5,100,1,10\n"
+                + "2022-02-01,Bexley,-20,1,20,-5,-10,1,9,50000,2,300\n");
+
+        CovidDataStore[] stores = new CovidDataStore[CovidDataLoader.IngestionMode.values().length];
+        for (CovidDataLoader.IngestionMode mode : CovidDataLoader.IngestionMode.values()) {
+            CovidDataLoader loader = new CovidDataLoader();
+            loader.setIngestionMode(mode);
+            loader.setSnapshotsEnabled(false);
+            long[] lastProgress = new long[2];
+            loader.setProgressListener((read, total) -> {
+                lastProgress[0] = read;
+                lastProgress[1] = total;
+            });
+            stores[mode.ordinal()] = loader.loadStore(file);
+            assertEquals(Files.size(file), lastProgress[0], mode.toString());
+            assertEquals(Files.size(file), lastProgress[1], mode.toString());
+        }
+
+        CovidDataStore opencsv = stores[CovidDataLoader.IngestionMode.OPENCSV.ordinal()];
+        CovidDataStore mapped = stores[CovidDataLoader.IngestionMode.MAPPED.ordinal()];
+        assertEquals(3, opencsv.size());
+        assertEquals(opencsv.size(), mapped.size());
+        for (int row = 0; row < opencsv.size(); row++) {
+            assertEquals(opencsv.getDate(row), mapped.getDate(row));
+            assertEquals(opencsv.getBorough(row), mapped.getBorough(row));
+            for (CovidMetric metric : CovidMetric.VALUES) {
+                assertEquals(opencsv.getValue(metric, row), mapped.getValue(metric, row), metric + " of row " + row);
+            }
+        }
+        assertEquals("Kingston Upon Thames", opencsv.getBorough(0));
+    }
+}
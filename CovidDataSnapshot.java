@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes binary snapshots of a parsed csv file. A snapshot holds the
+ * columns of a CovidDataStore as they are in memory, so loading it is a bulk
+ * copy out of a memory-mapped file instead of parsing text.
+ *
+ * A snapshot is stored next to its csv file and records the size, modification
+ * time and CRC32 checksum of that file. While the size and modification time
+ * match, the snapshot is used without reading the csv file. If only the
+ * modification time differs, as after copying the file, the csv file's
+ * checksum decides. When the csv file has changed, or the snapshot's own
+ * checksum is wrong, the snapshot is ignored and the csv file is parsed again.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CovidDataSnapshot {
+    private static final int MAGIC = 0x43564453; // "CVDS"
+    private static final int VERSION = 1; // Increase whenever the layout below changes.
+    private static final String SUFFIX = ".snapshot";
+
+    /*
+     * Header layout: magic, version, metric count, row count, borough count (ints),
+     * then csv size, csv modification time, csv checksum and payload checksum
+     * (longs).
+     */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 4 * Long.BYTES;
+    static final int MODIFIED_OFFSET = 5 * Integer.BYTES + Long.BYTES; // Position of the modification time.
+
+    private CovidDataSnapshot() {
+    }
+
+    /**
+     * Returns the path of the snapshot belonging to a csv file.
+     *
+     * @param csvFile The csv file.
+     * @return The path of its snapshot.
+     */
+    public static Path snapshotPath(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads the snapshot of a csv file, if there is one that is still valid.
+     *
+     * @param csvFile The csv file the snapshot was written for.
+     * @return The snapshot's store, or null if there is no valid snapshot.
+     * @throws IOException if the csv file cannot be read.
+     */
+    public static CovidDataStore read(Path csvFile) throws IOException {
+        Path snapshotFile = snapshotPath(csvFile);
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != CovidMetric.COUNT) {
+                return null;
+            }
+            int size = buffer.getInt();
+            int boroughCount = buffer.getInt();
+            long csvSize = buffer.getLong();
+            long csvModified = buffer.getLong();
+            long csvChecksum = buffer.getLong();
+            long payloadChecksum = buffer.getLong();
+
+            if (csvSize != Files.size(csvFile)) {
+                return null; // the csv file has changed since the snapshot was written
+            }
+            long modified = Files.getLastModifiedTime(csvFile).toMillis();
+            if (csvModified != modified) {
+                // Only read the whole csv file when its time stamp alone cannot tell.
+                if (csvChecksum != checksum(csvFile)) {
+                    return null;
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != payloadChecksum) {
+                return null;
+            }
+
+            String[] boroughNames = new String[boroughCount];
+            for (int id = 0; id < boroughCount; id++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                boroughNames[id] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int[] dates = new int[size];
+            buffer.asIntBuffer().get(dates);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+            short[] boroughIds = new short[size];
+            buffer.asShortBuffer().get(boroughIds);
+            buffer.position(buffer.position() + size * Short.BYTES);
+            int[][] columns = new int[CovidMetric.COUNT][size];
+            for (int[] column : columns) {
+                buffer.asIntBuffer().get(column);
+                buffer.position(buffer.position() + size * Integer.BYTES);
+            }
+            CovidDataStore store = CovidDataStore.fromSortedColumns(size, dates, boroughIds, columns, boroughNames);
+            if (csvModified != modified) {
+                updateModifiedTime(snapshotFile, modified);
+            }
+            return store;
+        } catch (RuntimeException e) {
+            // A truncated or otherwise damaged snapshot is treated as missing.
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a store next to the csv file it was parsed from. The
+     * snapshot is written to a temporary file first and then moved into place,
+     * so a reader never sees a partly written snapshot.
+     *
+     * @param csvFile The csv file the store was parsed from.
+     * @param store   The parsed store.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static void write(Path csvFile, CovidDataStore store) throws IOException {
+        int size = store.size();
+        int from = store.getStartIndex();
+        byte[][] names = new byte[store.getBoroughCount()][];
+        int namesSize = 0;
+        for (int id = 0; id < names.length; id++) {
+            names[id] = store.getBoroughName(id).getBytes(StandardCharsets.UTF_8);
+            namesSize += Short.BYTES + names[id].length;
+        }
+        long payloadSize = namesSize + (long) size * (Integer.BYTES + Short.BYTES + CovidMetric.COUNT * Integer.BYTES);
+        if (HEADER_SIZE + payloadSize > Integer.MAX_VALUE) {
+            throw new IOException("Data set is too large for a snapshot");
+        }
+
+        ByteBuffer payload = ByteBuffer.allocateDirect((int) payloadSize);
+        for (byte[] name : names) {
+            payload.putShort((short) name.length);
+            payload.put(name);
+        }
+        payload.asIntBuffer().put(store.getDateColumn(), from, size);
+        payload.position(payload.position() + size * Integer.BYTES);
+        payload.asShortBuffer().put(store.getBoroughColumn(), from, size);
+        payload.position(payload.position() + size * Short.BYTES);
+        for (CovidMetric metric : CovidMetric.VALUES) {
+            payload.asIntBuffer().put(store.getColumn(metric), from, size);
+            payload.position(payload.position() + size * Integer.BYTES);
+        }
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(CovidMetric.COUNT).putInt(size).putInt(names.length);
+        header.putLong(Files.size(csvFile)).putLong(Files.getLastModifiedTime(csvFile).toMillis())
+                .putLong(checksum(csvFile)).putLong(crc.getValue());
+        header.flip();
+
+        Path snapshotFile = snapshotPath(csvFile);
+        Path tempFile = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    channel.write(new ByteBuffer[] { header, payload });
+                }
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Records a new modification time of the csv file in a snapshot whose csv
+     * file has been found unchanged, so the next load does not compute its
+     * checksum again. The snapshot stays valid if this fails.
+     */
+    private static void updateModifiedTime(Path snapshotFile, long modified) {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+            ByteBuffer time = ByteBuffer.allocate(Long.BYTES).putLong(modified);
+            time.flip();
+            channel.write(time, MODIFIED_OFFSET);
+        } catch (IOException e) {
+            System.err.println("Could not update the snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the CRC32 checksum of a file's contents.
+     */
+    private static long checksum(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CRC32 crc = new CRC32();
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                long length = Math.min(Integer.MAX_VALUE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+            return crc.getValue();
+        }
+    }
+}
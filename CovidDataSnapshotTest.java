@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the CovidDataSnapshot class. It checks
+ * that a snapshot is read back as written, that it survives a new modification
+ * time of an unchanged csv file, and that it is ignored once the csv file has
+ * changed.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CovidDataSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private Path csvFile;
+    private CovidDataStore store;
+
+    /**
+     * Writes a small csv file and a snapshot of it before each test.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        csvFile = CovidCsvFixture.write(directory, "covid.csv", "2022-01-31,Barnet,0,0,0,0,0,0,5,100,1,10\n"
+                + "2022-02-01,Bexley,0,0,0,0,0,0,2,50,0,4\n");
+        CovidDataLoader loader = new CovidDataLoader();
+        loader.setSnapshotsEnabled(false);
+        store = loader.loadStore(csvFile);
+        CovidDataSnapshot.write(csvFile, store);
+    }
+
+    /**
+     * Tests that a snapshot of an unchanged file holds the same rows.
+     */
+    @Test
+    void read_returnsWrittenRows() throws IOException {
+        CovidDataStore snapshot = CovidDataSnapshot.read(csvFile);
+        assertNotNull(snapshot);
+        assertEquals(store.size(), snapshot.size());
+        assertEquals("Bexley", snapshot.getBorough(1));
+        assertEquals(100, snapshot.getValue(CovidMetric.TOTAL_CASES, 0));
+    }
+
+    /**
+     * Tests that only touching the csv file keeps the snapshot valid, and that
+     * the new modification time is recorded in the snapshot.
+     */
+    @Test
+    void read_acceptsTouchedFileWithSameContents() throws IOException {
+        long touched = Files.getLastModifiedTime(csvFile).toMillis() + 60_000;
+        Files.setLastModifiedTime(csvFile, FileTime.fromMillis(touched));
+        assertNotEquals(touched, readModifiedTime());
+        assertNotNull(CovidDataSnapshot.read(csvFile));
+        assertEquals(touched, readModifiedTime());
+        assertNotNull(CovidDataSnapshot.read(csvFile));
+    }
+
+    /**
+     * Reads the modification time of the csv file recorded in its snapshot.
+     */
+    private long readModifiedTime() throws IOException {
+        try (FileChannel channel = FileChannel.open(CovidDataSnapshot.snapshotPath(csvFile), StandardOpenOption.READ)) {
+            ByteBuffer time = ByteBuffer.allocate(Long.BYTES);
+            channel.read(time, CovidDataSnapshot.MODIFIED_OFFSET);
+            return time.flip().getLong();
+        }
+    }
+
+    /**
+     * Tests that changed contents of the same size invalidate the snapshot.
+     */
+    @Test
+    void read_rejectsChangedFile() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(csvFile);
+        Files.writeString(csvFile, Files.readString(csvFile).replace("5,100", "6,100"));
+        Files.setLastModifiedTime(csvFile, FileTime.fromMillis(modified.toMillis() + 60_000));
+        assertNull(CovidDataSnapshot.read(csvFile));
+    }
+}
@@ -0,0 +1,758 @@
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Column oriented storage of COVID records. Instead of one CovidData object per
+ * row, dates are kept as epoch days, borough names are dictionary encoded as
+ * short ids and every metric lives in its own int array. Analyzers can scan
+ * these arrays directly, while CovidData row views are created on demand for
+ * code that works with records.
+ * 
+ * Rows are kept sorted by date, and by borough name within a date, and an index
+ * maps every date to the first row on that date. A date range therefore
+ * resolves to a contiguous slice of rows, which shares the columns of the store
+ * it was taken from instead of copying them.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CovidDataStore {
+    private final int start; // Index of the first row of this store within the columns.
+    private final int end; // Index one past the last row of this store within the columns.
+    private final int[] dates; // Date of each row as a number of days since 1970-01-01.
+    private final short[] boroughIds; // Borough of each row as an index into boroughNames.
+    private final int[][] columns; // One column per CovidMetric, indexed by the metric's ordinal.
+    private final String[] boroughNames; // Dictionary of borough names, in alphabetical order.
+
+    /*
+     * Every day between the first and the last date of the columns, so row views
+     * can hand out dates without creating a new object each time, and the first
+     * row on or after each of those days. dayIndex has one extra entry holding
+     * the total number of rows. The arrays may be longer than dayCount.
+     */
+    private final int minDay;
+    private final int dayCount;
+    private final LocalDate[] dayDictionary;
+    private final int[] dayIndex;
+
+    /*
+     * Number of rows filled in by the latest store sharing these columns. Only
+     * that store may append to the columns in place; see append.
+     */
+    private final AtomicInteger rowsInUse;
+
+    /**
+     * Creates a store over sorted columns, computing the date dictionary and the
+     * date index.
+     */
+    private CovidDataStore(int size, int[] dates, short[] boroughIds, int[][] columns, String[] boroughNames) {
+        this.start = 0;
+        this.end = size;
+        this.dates = dates;
+        this.boroughIds = boroughIds;
+        this.columns = columns;
+        this.boroughNames = boroughNames;
+
+        this.rowsInUse = new AtomicInteger(size);
+        this.minDay = size == 0 ? 0 : dates[0];
+        this.dayCount = size == 0 ? 0 : dates[size - 1] - minDay + 1;
+        this.dayDictionary = new LocalDate[dayCount];
+        this.dayIndex = new int[dayCount + 1];
+        for (int d = 0; d < dayCount; d++) {
+            dayDictionary[d] = LocalDate.ofEpochDay(minDay + d);
+        }
+        // Count the rows on each day, then turn the counts into starting rows.
+        for (int i = 0; i < size; i++) {
+            dayIndex[dates[i] - minDay + 1]++;
+        }
+        for (int d = 0; d < dayCount; d++) {
+            dayIndex[d + 1] += dayIndex[d];
+        }
+    }
+
+    /**
+     * Creates a slice of another store, sharing its columns and indexes.
+     */
+    private CovidDataStore(CovidDataStore source, int start, int end) {
+        this.start = start;
+        this.end = end;
+        this.dates = source.dates;
+        this.boroughIds = source.boroughIds;
+        this.columns = source.columns;
+        this.boroughNames = source.boroughNames;
+        this.minDay = source.minDay;
+        this.dayCount = source.dayCount;
+        this.dayDictionary = source.dayDictionary;
+        this.dayIndex = source.dayIndex;
+        this.rowsInUse = source.rowsInUse;
+    }
+
+    /**
+     * Creates a store over columns holding the rows of another store followed by
+     * appended rows, reusing its date dictionary and index as far as they go.
+     */
+    private CovidDataStore(CovidDataStore source, int end, int[] dates, short[] boroughIds, int[][] columns,
+            int dayCount, LocalDate[] dayDictionary, int[] dayIndex, AtomicInteger rowsInUse) {
+        this.start = 0;
+        this.end = end;
+        this.dates = dates;
+        this.boroughIds = boroughIds;
+        this.columns = columns;
+        this.boroughNames = source.boroughNames;
+        this.minDay = source.minDay;
+        this.dayCount = dayCount;
+        this.dayDictionary = dayDictionary;
+        this.dayIndex = dayIndex;
+        this.rowsInUse = rowsInUse;
+    }
+
+    /**
+     * Creates a store over columns that are already sorted by date and borough,
+     * such as the columns of a snapshot written from another store. The arrays
+     * are used as they are, without copying.
+     *
+     * @param size         The number of rows.
+     * @param dates        The epoch day of each row.
+     * @param boroughIds   The borough id of each row.
+     * @param columns      One column per CovidMetric, in ordinal order.
+     * @param boroughNames The borough dictionary, in alphabetical order.
+     * @return A new store over the columns.
+     */
+    static CovidDataStore fromSortedColumns(int size, int[] dates, short[] boroughIds, int[][] columns,
+            String[] boroughNames) {
+        return new CovidDataStore(size, dates, boroughIds, columns, boroughNames);
+    }
+
+    /**
+     * Builds a store holding the given records, sorted by date and borough.
+     *
+     * @param records The records to store.
+     * @return A new store containing the records.
+     */
+    public static CovidDataStore fromRecords(List<CovidData> records) {
+        Builder builder = new Builder();
+        for (CovidData record : records) {
+            builder.addRecord(record);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the rows whose date falls within the given range, inclusive. The
+     * rows are found through the date index and the returned store shares the
+     * columns of this one, so no data is copied.
+     *
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return A store holding the matching rows.
+     */
+    public CovidDataStore slice(LocalDate startDate, LocalDate endDate) {
+        return slice((int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+    }
+
+    /**
+     * Returns the rows whose epoch day falls within the given range, inclusive,
+     * without copying any data.
+     *
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return A store holding the matching rows.
+     */
+    public CovidDataStore slice(int startDay, int endDay) {
+        if (endDay < startDay) {
+            return new CovidDataStore(this, start, start);
+        }
+        int from = getFirstRowOnOrAfter(startDay);
+        // endDay + 1 would overflow for the last representable day.
+        int to = endDay == Integer.MAX_VALUE ? end : getFirstRowOnOrAfter(endDay + 1);
+        return new CovidDataStore(this, from, Math.max(from, to));
+    }
+
+    /**
+     * Returns the index of the first row of this store whose date is on or after
+     * the given day, as used by getStartIndex and getEndIndex.
+     *
+     * @param day The epoch day.
+     * @return The index of the row, or getEndIndex() if every row is dated
+     *         before the day.
+     */
+    public int getFirstRowOnOrAfter(int day) {
+        return Math.max(start, Math.min(end, firstRowOfColumnsOnOrAfter(day)));
+    }
+
+    /**
+     * Looks up the first row of the columns whose date is on or after the given
+     * day.
+     */
+    private int firstRowOfColumnsOnOrAfter(int day) {
+        if (day <= minDay) {
+            return 0;
+        }
+        if (day - minDay >= dayCount) {
+            return dayIndex[dayCount];
+        }
+        return dayIndex[day - minDay];
+    }
+
+    /**
+     * Tells whether the rows of another store can be appended to this one with
+     * append. That is the case if this is a whole, non-empty store rather than a
+     * slice, every new row is dated after the last row of this store, and every
+     * borough of the new rows is already in this store's dictionary.
+     *
+     * @param newRows The rows to append.
+     * @return true if append accepts the rows.
+     */
+    public boolean canAppend(CovidDataStore newRows) {
+        if (start != 0 || end != dayIndex[dayCount] || size() == 0) {
+            return false; // a slice, or nothing to continue from
+        }
+        if (newRows.size() == 0) {
+            return true;
+        }
+        if (newRows.getEpochDay(0) <= getEpochDay(size() - 1)) {
+            return false;
+        }
+        for (int id = 0; id < newRows.getBoroughCount(); id++) {
+            if (Arrays.binarySearch(boroughNames, newRows.getBoroughName(id)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a store holding the rows of this store followed by the rows of
+     * another one, which must be accepted by canAppend. The columns have room to
+     * spare, so the new rows are normally written after the last row of this
+     * store, costing time in proportion to the new rows only. This store and its
+     * slices never look past their own last row, so they stay valid and
+     * unchanged. If there is no room left, or this store has already been
+     * appended to, the columns are first copied into larger ones.
+     *
+     * @param newRows The rows to append.
+     * @return A store holding the rows of both stores.
+     * @throws IllegalArgumentException if canAppend rejects the rows.
+     */
+    public CovidDataStore append(CovidDataStore newRows) {
+        if (!canAppend(newRows)) {
+            throw new IllegalArgumentException("The rows cannot be appended to this store");
+        }
+        int count = newRows.size();
+        if (count == 0) {
+            return this;
+        }
+        int newEnd = end + count;
+        int newDayCount = newRows.getEpochDay(count - 1) - minDay + 1;
+
+        int[] newDates = dates;
+        short[] newBoroughIds = boroughIds;
+        int[][] newColumns = columns;
+        LocalDate[] newDayDictionary = dayDictionary;
+        int[] newDayIndex = dayIndex;
+        AtomicInteger newRowsInUse = rowsInUse;
+        boolean inPlace = dates.length >= newEnd && dayDictionary.length >= newDayCount
+                && dayIndex.length > newDayCount && rowsInUse.compareAndSet(end, newEnd);
+        if (!inPlace) {
+            // Grow the arrays geometrically, so that daily appends mostly fit.
+            int rowCapacity = Math.max(newEnd, 2 * end);
+            int dayCapacity = Math.max(newDayCount, 2 * dayCount);
+            newDates = Arrays.copyOf(dates, rowCapacity);
+            newBoroughIds = Arrays.copyOf(boroughIds, rowCapacity);
+            newColumns = new int[CovidMetric.COUNT][];
+            for (int c = 0; c < CovidMetric.COUNT; c++) {
+                newColumns[c] = Arrays.copyOf(columns[c], rowCapacity);
+            }
+            newDayDictionary = Arrays.copyOf(dayDictionary, dayCapacity);
+            newDayIndex = Arrays.copyOf(dayIndex, dayCapacity + 1);
+            newRowsInUse = new AtomicInteger(newEnd);
+        }
+
+        // Copy the new rows, translating their borough ids into this dictionary.
+        int from = newRows.getStartIndex();
+        System.arraycopy(newRows.dates, from, newDates, end, count);
+        for (int c = 0; c < CovidMetric.COUNT; c++) {
+            System.arraycopy(newRows.columns[c], from, newColumns[c], end, count);
+        }
+        short[] translatedIds = new short[newRows.getBoroughCount()];
+        for (int id = 0; id < translatedIds.length; id++) {
+            translatedIds[id] = (short) Arrays.binarySearch(boroughNames, newRows.getBoroughName(id));
+        }
+        for (int i = 0; i < count; i++) {
+            newBoroughIds[end + i] = translatedIds[newRows.boroughIds[from + i]];
+        }
+
+        // Extend the date dictionary and index over the new days. The entry of the
+        // first new day already holds the old number of rows, where the new rows
+        // start.
+        for (int d = dayCount; d < newDayCount; d++) {
+            newDayDictionary[d] = LocalDate.ofEpochDay(minDay + d);
+            newDayIndex[d + 1] = 0;
+        }
+        for (int i = end; i < newEnd; i++) {
+            newDayIndex[newDates[i] - minDay + 1]++;
+        }
+        for (int d = dayCount; d < newDayCount; d++) {
+            newDayIndex[d + 1] += newDayIndex[d];
+        }
+        return new CovidDataStore(this, newEnd, newDates, newBoroughIds, newColumns, newDayCount, newDayDictionary,
+                newDayIndex, newRowsInUse);
+    }
+
+    /**
+     * Returns the index of the first row of this store within the arrays returned
+     * by getColumn, getDateColumn and getBoroughColumn.
+     *
+     * @return The first valid index of the columns.
+     */
+    public int getStartIndex() {
+        return start;
+    }
+
+    /**
+     * Returns the index one past the last row of this store within the arrays
+     * returned by getColumn, getDateColumn and getBoroughColumn.
+     *
+     * @return The end index (exclusive) of the columns.
+     */
+    public int getEndIndex() {
+        return end;
+    }
+
+    /**
+     * Returns the number of rows in the store.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * Returns the date of a row as a number of days since 1970-01-01.
+     *
+     * @param row The index of the row.
+     * @return The epoch day of the row.
+     */
+    public int getEpochDay(int row) {
+        return dates[start + row];
+    }
+
+    /**
+     * Returns the date of a row.
+     *
+     * @param row The index of the row.
+     * @return The date of the row.
+     */
+    public LocalDate getDate(int row) {
+        return dayDictionary[dates[start + row] - minDay];
+    }
+
+    /**
+     * Returns the id of the borough of a row.
+     *
+     * @param row The index of the row.
+     * @return The borough id, an index into the borough dictionary.
+     */
+    public short getBoroughId(int row) {
+        return boroughIds[start + row];
+    }
+
+    /**
+     * Returns the borough name of a row.
+     *
+     * @param row The index of the row.
+     * @return The borough name.
+     */
+    public String getBorough(int row) {
+        return boroughNames[boroughIds[start + row]];
+    }
+
+    /**
+     * Returns the value of a metric in a row.
+     *
+     * @param metric The metric to read.
+     * @param row    The index of the row.
+     * @return The value of the metric.
+     */
+    public int getValue(CovidMetric metric, int row) {
+        return columns[metric.ordinal()][start + row];
+    }
+
+    /**
+     * Returns the column holding all values of a metric. Only the entries from
+     * getStartIndex() up to getEndIndex() belong to this store; the array must
+     * not be modified.
+     *
+     * @param metric The metric whose column is requested.
+     * @return The backing array of the column.
+     */
+    public int[] getColumn(CovidMetric metric) {
+        return columns[metric.ordinal()];
+    }
+
+    /**
+     * Returns the column holding the epoch day of every row. Only the entries from
+     * getStartIndex() up to getEndIndex() belong to this store; the array must
+     * not be modified.
+     *
+     * @return The backing array of the date column.
+     */
+    public int[] getDateColumn() {
+        return dates;
+    }
+
+    /**
+     * Returns the column holding the borough id of every row. Only the entries
+     * from getStartIndex() up to getEndIndex() belong to this store; the array
+     * must not be modified.
+     *
+     * @return The backing array of the borough column.
+     */
+    public short[] getBoroughColumn() {
+        return boroughIds;
+    }
+
+    /**
+     * Returns the number of distinct boroughs in the borough dictionary.
+     *
+     * @return The number of boroughs.
+     */
+    public int getBoroughCount() {
+        return boroughNames.length;
+    }
+
+    /**
+     * Returns the name of the borough with the given id.
+     *
+     * @param boroughId The id of the borough.
+     * @return The borough name.
+     */
+    public String getBoroughName(int boroughId) {
+        return boroughNames[boroughId];
+    }
+
+    /**
+     * Returns a CovidData view of a single row.
+     *
+     * @param row The index of the row.
+     * @return A record reading its values from this store.
+     */
+    public CovidData getRow(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size());
+        }
+        return new RowView(this, start + row);
+    }
+
+    /**
+     * Returns all rows of the store as a read-only list of CovidData views. The
+     * views are created lazily when an element is accessed.
+     *
+     * @return A list view of the store.
+     */
+    public List<CovidData> rows() {
+        return new RowList();
+    }
+
+    /**
+     * A record backed by one row of a store. The accessors read straight from
+     * the columns, so a view costs only a few bytes while it is in use. The
+     * class is public so that reflective readers outside this package, such as
+     * the PropertyValueFactory of the borough table, can call its accessors.
+     */
+    public static final class RowView extends CovidData {
+        private final CovidDataStore store;
+        private final int row; // Index of the row within the columns.
+
+        private RowView(CovidDataStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public LocalDate getDate() {
+            return store.dayDictionary[store.dates[row] - store.minDay];
+        }
+
+        @Override
+        public String getBorough() {
+            return store.boroughNames[store.boroughIds[row]];
+        }
+
+        @Override
+        public int getRetailRecreationGMR() {
+            return store.columns[CovidMetric.RETAIL_RECREATION_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getGroceryPharmacyGMR() {
+            return store.columns[CovidMetric.GROCERY_PHARMACY_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getParksGMR() {
+            return store.columns[CovidMetric.PARKS_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getTransitGMR() {
+            return store.columns[CovidMetric.TRANSIT_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getWorkplacesGMR() {
+            return store.columns[CovidMetric.WORKPLACES_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getResidentialGMR() {
+            return store.columns[CovidMetric.RESIDENTIAL_GMR.ordinal()][row];
+        }
+
+        @Override
+        public int getNewCases() {
+            return store.columns[CovidMetric.NEW_CASES.ordinal()][row];
+        }
+
+        @Override
+        public int getTotalCases() {
+            return store.columns[CovidMetric.TOTAL_CASES.ordinal()][row];
+        }
+
+        @Override
+        public int getNewDeaths() {
+            return store.columns[CovidMetric.NEW_DEATHS.ordinal()][row];
+        }
+
+        @Override
+        public int getTotalDeaths() {
+            return store.columns[CovidMetric.TOTAL_DEATHS.ordinal()][row];
+        }
+    }
+
+    /**
+     * Read-only list of row views over the rows of the store.
+     */
+    private class RowList extends AbstractList<CovidData> implements RandomAccess {
+        @Override
+        public CovidData get(int index) {
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return CovidDataStore.this.size();
+        }
+    }
+
+    /**
+     * Collects rows one at a time and turns them into a CovidDataStore. The
+     * columns grow as needed, so the number of rows does not have to be known in
+     * advance, and rows may be added in any order.
+     */
+    public static class Builder {
+        /*
+         * Bit widths of the packed sort keys used by build().
+         */
+        private static final int ROW_BITS = 27;
+        private static final int BOROUGH_BITS = 15;
+        private static final int DAY_BITS = 63 - ROW_BITS - BOROUGH_BITS;
+
+        private int size;
+        private int[] dates = new int[1024];
+        private short[] boroughIds = new short[1024];
+        private int[][] columns = new int[CovidMetric.COUNT][1024];
+        private final Map<String, Short> boroughLookup = new HashMap<>();
+        private final List<String> boroughNames = new ArrayList<>();
+        private boolean deduplicate; // Whether build() keeps only the last row of each date and borough.
+
+        /**
+         * Selects whether build() drops duplicate rows. If enabled, only the row
+         * added last is kept for each date and borough, so when several files are
+         * merged, a later file overrides an earlier one.
+         *
+         * @param deduplicate true to keep one row per date and borough.
+         * @return This builder.
+         */
+        public Builder setDeduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        /**
+         * Appends one row to the store being built.
+         *
+         * @param epochDay The date of the row as a number of days since 1970-01-01.
+         * @param borough  The borough name of the row.
+         * @param values   The metric values, in CovidMetric order.
+         * @return This builder.
+         */
+        public Builder addRow(int epochDay, String borough, int[] values) {
+            ensureCapacity(size + 1);
+            dates[size] = epochDay;
+            boroughIds[size] = boroughId(borough);
+            for (int c = 0; c < CovidMetric.COUNT; c++) {
+                columns[c][size] = values[c];
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends a copy of a record to the store being built.
+         *
+         * @param record The record to add.
+         * @return This builder.
+         */
+        public Builder addRecord(CovidData record) {
+            ensureCapacity(size + 1);
+            dates[size] = (int) record.getDate().toEpochDay();
+            boroughIds[size] = boroughId(record.getBorough());
+            for (CovidMetric metric : CovidMetric.VALUES) {
+                columns[metric.ordinal()][size] = metric.valueOf(record);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends every row of another store, in the store's order. The columns are
+         * copied in bulk, and the store's borough ids are translated once per
+         * borough rather than once per row.
+         *
+         * @param store The store whose rows to add.
+         * @return This builder.
+         */
+        public Builder addStore(CovidDataStore store) {
+            int count = store.size();
+            int from = store.getStartIndex();
+            ensureCapacity(size + count);
+            System.arraycopy(store.getDateColumn(), from, dates, size, count);
+            for (CovidMetric metric : CovidMetric.VALUES) {
+                System.arraycopy(store.getColumn(metric), from, columns[metric.ordinal()], size, count);
+            }
+
+            short[] sourceIds = store.getBoroughColumn();
+            short[] translatedIds = new short[store.getBoroughCount()];
+            Arrays.fill(translatedIds, (short) -1);
+            for (int i = 0; i < count; i++) {
+                short sourceId = sourceIds[from + i];
+                if (translatedIds[sourceId] < 0) {
+                    translatedIds[sourceId] = boroughId(store.getBoroughName(sourceId));
+                }
+                boroughIds[size + i] = translatedIds[sourceId];
+            }
+            size += count;
+            return this;
+        }
+
+        /**
+         * Returns the number of rows added so far.
+         *
+         * @return The number of rows.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Creates the store from the rows added so far, sorting them by date and by
+         * borough name within a date. Rows with the same date and borough keep the
+         * order in which they were added, or, if deduplication is enabled, only the
+         * last of them is kept.
+         *
+         * @return The new CovidDataStore.
+         */
+        public CovidDataStore build() {
+            // Renumber the boroughs so that their ids follow the alphabetical order.
+            String[] sortedNames = boroughNames.toArray(new String[0]);
+            Arrays.sort(sortedNames);
+            short[] sortedIds = new short[sortedNames.length];
+            for (int id = 0; id < sortedIds.length; id++) {
+                sortedIds[id] = (short) Arrays.binarySearch(sortedNames, boroughNames.get(id));
+            }
+
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                minDay = Math.min(minDay, dates[i]);
+                maxDay = Math.max(maxDay, dates[i]);
+            }
+            if (size > 0 && (long) maxDay - minDay >= 1 << DAY_BITS || size >= 1 << ROW_BITS) {
+                throw new IllegalStateException("Too many rows or days to index: " + size + " rows");
+            }
+
+            // Sort packed (day, borough, row) keys, which keeps the sort primitive
+            // and stable.
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) (dates[i] - minDay) << (BOROUGH_BITS + ROW_BITS)
+                        | (long) sortedIds[boroughIds[i]] << ROW_BITS | i;
+            }
+            Arrays.sort(keys);
+
+            int count = size;
+            if (deduplicate) {
+                // Duplicates are adjacent after sorting, and the last one was added last.
+                count = 0;
+                for (int j = 0; j < size; j++) {
+                    if (j + 1 == size || keys[j] >>> ROW_BITS != keys[j + 1] >>> ROW_BITS) {
+                        keys[count++] = keys[j];
+                    }
+                }
+            }
+
+            int[] sortedDates = new int[count];
+            short[] sortedBoroughIds = new short[count];
+            int[][] sortedColumns = new int[CovidMetric.COUNT][count];
+            for (int j = 0; j < count; j++) {
+                int i = (int) (keys[j] & ((1L << ROW_BITS) - 1));
+                sortedDates[j] = dates[i];
+                sortedBoroughIds[j] = sortedIds[boroughIds[i]];
+                for (int c = 0; c < CovidMetric.COUNT; c++) {
+                    sortedColumns[c][j] = columns[c][i];
+                }
+            }
+            return new CovidDataStore(count, sortedDates, sortedBoroughIds, sortedColumns, sortedNames);
+        }
+
+        /**
+         * Looks up the id of a borough, adding it to the dictionary if it has not
+         * been seen before.
+         */
+        private short boroughId(String borough) {
+            Short id = boroughLookup.get(borough);
+            if (id == null) {
+                if (boroughNames.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct boroughs: " + boroughNames.size());
+                }
+                id = (short) boroughNames.size();
+                boroughLookup.put(borough, id);
+                boroughNames.add(borough);
+            }
+            return id;
+        }
+
+        /**
+         * Grows the columns so they can hold at least the given number of rows.
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity > dates.length) {
+                int newCapacity = Math.max(capacity, dates.length * 2);
+                dates = Arrays.copyOf(dates, newCapacity);
+                boroughIds = Arrays.copyOf(boroughIds, newCapacity);
+                for (int c = 0; c < CovidMetric.COUNT; c++) {
+                    columns[c] = Arrays.copyOf(columns[c], newCapacity);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.cell.PropertyValueFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CovidDataStore class. It verifies that
+ * records are stored sorted by date and borough, and that date ranges resolve
+ * to the right slice of rows.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CovidDataStoreTest {
+    private CovidDataStore store;
+
+    /**
+     * Sets up an unsorted set of records before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        List<CovidData> covidDataList = new ArrayList<>();
+        covidDataList.add(new CovidData("2022-10-15", "Barnet", -17, 2, 27, -6, -19, 0, 11, 72918, 1, 615));
+        covidDataList.add(new CovidData("2022-10-13", "Barnet", -15, 6, 28, -8, -31, 3, 17, 72895, 0, 614));
+        covidDataList.add(new CovidData("2022-10-15", "Barking And Dagenham", -20, 1, 20, -5, -10, 1, 9, 50000, 2, 300));
+        covidDataList.add(new CovidData("2022-10-14", "Barnet", -15, 10, 29, -11, -29, 3, 12, 72907, 0, 614));
+        covidDataList.add(new CovidData("2022-10-17", "Barnet", -10, 10, 20, -10, -20, 2, 5, 72923, 0, 615));
+        store = CovidDataStore.fromRecords(covidDataList);
+    }
+
+    /**
+     * Tests that the rows are sorted by date, and by borough within a date.
+     */
+    @Test
+    void fromRecords_sortsByDateAndBorough() {
+        assertEquals(5, store.size());
+        assertEquals(LocalDate.of(2022, 10, 13), store.getDate(0));
+        assertEquals(LocalDate.of(2022, 10, 14), store.getDate(1));
+        assertEquals("Barking And Dagenham", store.getBorough(2));
+        assertEquals("Barnet", store.getBorough(3));
+        assertEquals(LocalDate.of(2022, 10, 17), store.getDate(4));
+    }
+
+    /**
+     * Tests that row views expose the same values as the original records.
+     */
+    @Test
+    void getRow_readsValuesFromColumns() {
+        CovidData row = store.getRow(3);
+        assertEquals("Barnet", row.getBorough());
+        assertEquals(LocalDate.of(2022, 10, 15), row.getDate());
+        assertEquals(-17, row.getRetailRecreationGMR());
+        assertEquals(72918, row.getTotalCases());
+        assertEquals(615, row.getTotalDeaths());
+    }
+
+    /**
+     * Tests that a date range, including dates without data, resolves to the
+     * matching rows.
+     */
+    @Test
+    void slice_returnsRowsWithinRange() {
+        CovidDataStore slice = store.slice(LocalDate.of(2022, 10, 14), LocalDate.of(2022, 10, 16));
+        assertEquals(3, slice.size());
+        assertEquals(1, slice.getStartIndex());
+        assertEquals(LocalDate.of(2022, 10, 14), slice.getDate(0));
+        assertEquals(LocalDate.of(2022, 10, 15), slice.getDate(2));
+
+        assertEquals(5, store.slice(LocalDate.of(2020, 1, 1), LocalDate.of(2023, 1, 1)).size());
+        assertEquals(0, store.slice(LocalDate.of(2022, 10, 16), LocalDate.of(2022, 10, 16)).size());
+        assertEquals(0, store.slice(LocalDate.of(2022, 10, 15), LocalDate.of(2022, 10, 14)).size());
+    }
+
+    /**
+     * Tests that slicing a slice stays within the bounds of the first slice.
+     */
+    @Test
+    void slice_ofSliceStaysWithinBounds() {
+        CovidDataStore slice = store.slice(LocalDate.of(2022, 10, 14), LocalDate.of(2022, 10, 15));
+        CovidDataStore nested = slice.slice(LocalDate.of(2022, 10, 1), LocalDate.of(2022, 10, 31));
+        assertEquals(3, nested.size());
+        assertEquals(slice.getStartIndex(), nested.getStartIndex());
+    }
+
+    /**
+     * Tests open-ended slices up to the last representable day, and the first row
+     * on or after a day within a slice.
+     */
+    @Test
+    void slice_toLastRepresentableDay() {
+        int day = (int) LocalDate.of(2022, 10, 15).toEpochDay();
+        CovidDataStore tail = store.slice(day, Integer.MAX_VALUE);
+        assertEquals(3, tail.size());
+        assertEquals(2, tail.getStartIndex());
+
+        CovidDataStore slice = store.slice(LocalDate.of(2022, 10, 14), LocalDate.of(2022, 10, 15));
+        assertEquals(1, slice.getFirstRowOnOrAfter(day - 10));
+        assertEquals(2, slice.getFirstRowOnOrAfter(day));
+        assertEquals(slice.getEndIndex(), slice.getFirstRowOnOrAfter(day + 1));
+        assertEquals(store.getEndIndex(), store.getFirstRowOnOrAfter(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Tests that merging stores with deduplication keeps the row added last for
+     * each date and borough.
+     */
+    @Test
+    void builder_mergesStoresKeepingLastDuplicate() {
+        List<CovidData> correction = new ArrayList<>();
+        correction.add(new CovidData("2022-10-14", "Barnet", 0, 0, 0, 0, 0, 0, 99, 72994, 0, 614));
+        correction.add(new CovidData("2022-10-18", "Bexley", 0, 0, 0, 0, 0, 0, 4, 40000, 0, 200));
+
+        CovidDataStore merged = new CovidDataStore.Builder().setDeduplicate(true).addStore(store)
+                .addStore(CovidDataStore.fromRecords(correction)).build();
+        assertEquals(6, merged.size());
+        assertEquals(LocalDate.of(2022, 10, 14), merged.getDate(1));
+        assertEquals(99, merged.getValue(CovidMetric.NEW_CASES, 1));
+        assertEquals("Bexley", merged.getBorough(5));
+        assertEquals(3, merged.getBoroughCount());
+
+        CovidDataStore slice = store.slice(LocalDate.of(2022, 10, 15), LocalDate.of(2022, 10, 15));
+        CovidDataStore copy = new CovidDataStore.Builder().addStore(slice).build();
+        assertEquals(2, copy.size());
+        assertEquals("Barking And Dagenham", copy.getBorough(0));
+        assertEquals(300, copy.getValue(CovidMetric.TOTAL_DEATHS, 0));
+    }
+
+    /**
+     * Tests that the borough table's PropertyValueFactory, which reads values by
+     * reflection from outside this package, can read the values of a row view.
+     */
+    @Test
+    void rowView_readableByPropertyValueFactory() {
+        CovidData row = store.rows().get(1);
+        PropertyValueFactory<CovidData, Object> newCases = new PropertyValueFactory<>("newCases");
+        PropertyValueFactory<CovidData, Object> date = new PropertyValueFactory<>("date");
+        assertEquals(12, newCases.call(new TableColumn.CellDataFeatures<>(null, null, row)).getValue());
+        assertEquals(LocalDate.of(2022, 10, 14),
+                date.call(new TableColumn.CellDataFeatures<>(null, null, row)).getValue());
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+
+/**
+ * Follows a csv file that grows by rows appended to its end, such as a daily
+ * data drop added to covid_london.csv, and adds the new rows to a CovidDataset.
+ * The tailer remembers the byte offset up to which the file has been read, so
+ * each refresh only parses the rows appended since the previous one, and the
+ * data set extends its store and running totals rather than rebuilding them.
+ *
+ * Refreshing can be done by calling refresh, or automatically whenever the file
+ * changes by calling startWatching.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CovidDataTailer {
+    private final Path file; // The csv file followed.
+    private final CovidDataset dataset; // Receives the appended rows.
+    private long offset; // Offset of the first byte of the file not read yet.
+    private boolean lineAligned; // Whether offset is known to be at the start of a line.
+    private LocalDate lastDate; // Latest date ingested so far.
+
+    private WatchService watchService; // Watches the file's directory while watching.
+
+    /**
+     * Creates a tailer for a file of which the rows up to the given offset are
+     * already in the data set. The offset may be the size of the file measured
+     * before it was loaded; if it ends up in the middle of a line, reading
+     * continues from the next line, and rows read twice replace their earlier
+     * copies in the data set.
+     *
+     * @param file    The csv file to follow.
+     * @param dataset The data set receiving the appended rows.
+     * @param offset  The number of bytes of the file already in the data set.
+     */
+    public CovidDataTailer(Path file, CovidDataset dataset, long offset) {
+        this.file = file;
+        this.dataset = dataset;
+        this.offset = offset;
+        this.lineAligned = offset == 0;
+        this.lastDate = dataset.getDateRange()[1];
+    }
+
+    /**
+     * Parses the complete rows appended to the file since the last refresh and
+     * adds them to the data set. If the file has become shorter than what was
+     * already read, it has been replaced, so it is read again from the start.
+     *
+     * @return The number of rows added.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized int refresh() throws IOException {
+        long size = Files.size(file);
+        if (size < offset) {
+            offset = 0;
+            lineAligned = true;
+        }
+        if (!lineAligned) {
+            long lineStart = nextLineStart(offset);
+            if (lineStart < 0) {
+                return 0; // the line the offset falls in is not complete yet
+            }
+            offset = lineStart;
+            lineAligned = true;
+        }
+        if (size == offset) {
+            return 0;
+        }
+
+        CovidDataStore.Builder builder = new CovidDataStore.Builder();
+        offset = new CovidCsvParser(builder).parseFrom(file, offset);
+        CovidDataStore newRows = builder.build();
+        if (newRows.size() > 0) {
+            LocalDate newLastDate = newRows.getDate(newRows.size() - 1);
+            if (newLastDate.isAfter(lastDate)) {
+                lastDate = newLastDate;
+            }
+            dataset.append(newRows);
+        }
+        return newRows.size();
+    }
+
+    /**
+     * Finds the offset just after the first line break at or after the byte
+     * before the given offset, which is the given offset itself if it is at the
+     * start of a line.
+     *
+     * @return The offset of the next line, or -1 if there is no line break yet.
+     */
+    private long nextLineStart(long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long readFrom = position - 1;
+            int read;
+            while ((read = channel.read(buffer.clear(), readFrom)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return readFrom + i + 1;
+                    }
+                }
+                readFrom += read;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Starts refreshing automatically, on a background thread, whenever the file
+     * is modified. Does nothing if the tailer is already watching.
+     *
+     * @throws IOException if the file's directory cannot be watched.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+
+        Thread watchThread = new Thread(() -> watch(service), "covid-data-tailer");
+        watchThread.setDaemon(true); // Do not keep the application alive once it is closed.
+        watchThread.start();
+    }
+
+    /**
+     * Stops refreshing automatically.
+     */
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Waits for changes to the file and refreshes after each, until the watch
+     * service is closed.
+     */
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= file.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    try {
+                        refresh();
+                    } catch (IOException | RuntimeException e) {
+                        e.printStackTrace();
+                        System.err.println("Error: Reading the rows appended to " + file + " was not successful");
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stopWatching was called.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the offset of the first byte of the file not read yet.
+     *
+     * @return The number of bytes of the file read so far.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the latest date ingested so far.
+     *
+     * @return The latest date in the data set or in the rows read since.
+     */
+    public synchronized LocalDate getLastDate() {
+        return lastDate;
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the CovidDataTailer class. It checks that
+ * rows appended to a csv file are added to the data set, and that the extended
+ * running totals match totals computed from scratch.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CovidDataTailerTest {
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private CovidDataset dataset;
+    private CovidDataTailer tailer;
+
+    /**
+     * Loads a small csv file and starts following it.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        file = CovidCsvFixture.write(directory, "covid.csv", "2022-01-01,Barnet,0,0,0,0,0,0,3,100,1,10\n"
+                + "2022-01-01,Bexley,0,0,0,0,0,0,2,50,0,4\n" + "2022-01-02,Barnet,0,0,0,0,0,0,4,104,0,10\n");
+        CovidDataLoader loader = new CovidDataLoader();
+        loader.setSnapshotsEnabled(false);
+        dataset = new CovidDataset(loader.loadStore(file));
+        tailer = new CovidDataTailer(file, dataset, Files.size(file));
+    }
+
+    /**
+     * Appends text to the followed file.
+     */
+    private void append(String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Tests that only complete appended lines are read, and that the extended
+     * totals match totals computed from the whole store.
+     */
+    @Test
+    void refresh_appendsNewRows() throws IOException {
+        int[] notifications = new int[1];
+        dataset.addAppendListener(() -> notifications[0]++);
+
+        append("2022-01-02,Bexley,0,0,0,0,0,0,6,56,1,5\n" + "2022-01-04,Barnet,0,0,0,0,0,0,1,105,0,10\n2022-01-0");
+        assertEquals(2, tailer.refresh());
+        assertEquals(5, dataset.size());
+        assertEquals(LocalDate.of(2022, 1, 4), dataset.getDateRange()[1]);
+        assertEquals(1, notifications[0]);
+
+        append("5,Bexley,0,0,0,0,0,0,7,63,0,5\n");
+        assertEquals(1, tailer.refresh());
+        assertEquals(0, tailer.refresh());
+        assertEquals(LocalDate.of(2022, 1, 5), tailer.getLastDate());
+        assertEquals(Files.size(file), tailer.getOffset());
+
+        CumulativeAggregates expected = new CumulativeAggregates(dataset.getStore());
+        CumulativeAggregates actual = dataset.getAggregates();
+        int first = (int) LocalDate.of(2022, 1, 1).toEpochDay();
+        for (int day = first; day <= first + 5; day++) {
+            assertEquals(expected.sum(CovidMetric.NEW_CASES, first, day), actual.sum(CovidMetric.NEW_CASES, first, day));
+            for (int borough = 0; borough < 2; borough++) {
+                assertEquals(expected.sum(CovidMetric.NEW_CASES, borough, day, day),
+                        actual.sum(CovidMetric.NEW_CASES, borough, day, day));
+                assertEquals(expected.count(borough, first, day), actual.count(borough, first, day));
+            }
+        }
+        assertEquals(23, actual.sum(CovidMetric.NEW_CASES, first, first + 4));
+    }
+
+    /**
+     * Tests that rows for dates already loaded, or for new boroughs, replace or
+     * join the existing rows.
+     */
+    @Test
+    void refresh_mergesCorrectionsAndNewBoroughs() throws IOException {
+        append("2022-01-01,Barnet,0,0,0,0,0,0,9,106,1,10\n" + "2022-01-02,Brent,0,0,0,0,0,0,8,80,0,2\n");
+        assertEquals(2, tailer.refresh());
+        CovidDataStore store = dataset.getStore();
+        assertEquals(4, store.size());
+        assertEquals(9, store.getValue(CovidMetric.NEW_CASES, 0));
+        assertEquals(3, store.getBoroughCount());
+        assertEquals(23, dataset.getAggregates().sum(CovidMetric.NEW_CASES, LocalDate.of(2022, 1, 1),
+                LocalDate.of(2022, 1, 2)));
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the COVID London data set for the whole application. The csv file is
+ * parsed only once into a column oriented CovidDataStore, which is shared,
+ * read-only, by every analyzer and controller, so changing the selected date
+ * range only works on data that is already in memory. Running totals of every
+ * metric are computed once as well, so range sums and averages do not need to
+ * visit the records at all.
+ *
+ * Rows appended to the csv file later can be added with append, which extends
+ * the store, the running totals and the borough index rather than rebuilding
+ * them. Every getter
+ * then returns the extended data, and registered listeners are told about it.
+ *
+ * Results of date range queries over the data set can be kept in its query
+ * cache, which is cleared whenever rows are appended.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CovidDataset {
+    private static CovidDataset instance; // The shared data set, created on first use.
+
+    /*
+     * All loaded records, the running totals over them and their index by
+     * borough. Each store, aggregates and index object is never modified once
+     * published; append replaces them, writing the store last so that a reader
+     * who sees the new store also sees the matching aggregates and index.
+     */
+    private volatile CumulativeAggregates aggregates;
+    private volatile BoroughIndex boroughIndex;
+    private volatile CovidDataStore store;
+    private volatile RollingWindowAnalytics rollingAnalytics; // Derived metrics of the store, replaced likewise.
+
+    private final List<Runnable> appendListeners = new CopyOnWriteArrayList<>();
+
+    private static final long QUERY_CACHE_CAPACITY = 32L << 20; // Estimated bytes of cached query results.
+    private final QueryCache queryCache = new QueryCache(QUERY_CACHE_CAPACITY);
+
+    /**
+     * Returns the process-wide data set, loading the csv file the first time this
+     * method is called.
+     *
+     * @return The shared CovidDataset instance.
+     * @throws IOException if the csv file cannot be loaded.
+     */
+    public static synchronized CovidDataset getInstance() throws IOException {
+        return getInstance(new CovidDataLoader());
+    }
+
+    /**
+     * Returns the process-wide data set, loading the csv file with the given
+     * loader the first time this method is called. This can be called from a
+     * background thread; the loader's progress listener is then notified on that
+     * thread. If loading fails, no data set is kept, so a later call tries again.
+     *
+     * @param loader The loader used if the data set has not been loaded yet.
+     * @return The shared CovidDataset instance.
+     * @throws IOException if the csv file cannot be loaded.
+     */
+    public static synchronized CovidDataset getInstance(CovidDataLoader loader) throws IOException {
+        if (instance == null) {
+            try {
+                instance = new CovidDataset(loader.loadStore(CovidDataLoader.getDataFile()));
+            } catch (URISyntaxException e) {
+                throw new IOException("The COVID data file has no valid path", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a data set from already loaded records. The records are copied
+     * into a new store, so later changes to the given list do not affect the data
+     * set.
+     *
+     * @param records The COVID data records making up the data set.
+     */
+    public CovidDataset(List<CovidData> records) {
+        this(CovidDataStore.fromRecords(records));
+    }
+
+    /**
+     * Constructs a data set backed by the given store.
+     *
+     * @param store The loaded COVID data.
+     */
+    public CovidDataset(CovidDataStore store) {
+        this.aggregates = new CumulativeAggregates(store);
+        this.store = store;
+        this.boroughIndex = new BoroughIndex(store);
+        this.rollingAnalytics = new RollingWindowAnalytics(store, aggregates);
+    }
+
+    /**
+     * Adds rows to the data set, such as the rows appended to the csv file since
+     * it was loaded. If every new row is dated after the current last date and
+     * names a known borough, the store, the running totals and the borough index
+     * are extended in time proportional to the new rows. Otherwise the rows are
+     * merged into a new store, where a new row replaces an existing row of the
+     * same date and borough. Afterwards the append listeners are notified on this thread.
+     *
+     * @param newRows The rows to add.
+     */
+    public void append(CovidDataStore newRows) {
+        if (newRows.size() == 0) {
+            return;
+        }
+        synchronized (this) {
+            CovidDataStore current = store;
+            if (current.canAppend(newRows)) {
+                CovidDataStore appended = current.append(newRows);
+                aggregates = aggregates.extend(appended);
+                boroughIndex = boroughIndex.extend(appended);
+                store = appended;
+            } else {
+                CovidDataStore merged = new CovidDataStore.Builder().setDeduplicate(true).addStore(current)
+                        .addStore(newRows).build();
+                aggregates = new CumulativeAggregates(merged);
+                boroughIndex = new BoroughIndex(merged);
+                store = merged;
+            }
+            queryCache.clear();
+        }
+        for (Runnable listener : appendListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers a listener to be run after rows have been appended. It runs on
+     * the thread that called append, which need not be the JavaFX Application
+     * Thread.
+     *
+     * @param listener The listener to add.
+     */
+    public void addAppendListener(Runnable listener) {
+        appendListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addAppendListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeAppendListener(Runnable listener) {
+        appendListeners.remove(listener);
+    }
+
+    /**
+     * Returns the cache for results of date range queries over the data set. It
+     * is cleared whenever rows are appended.
+     *
+     * @return The query cache.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Returns the column oriented store holding every record of the data set.
+     *
+     * @return The backing store.
+     */
+    public CovidDataStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the running totals of every metric, per borough and per day.
+     *
+     * @return The precomputed aggregates of the data set.
+     */
+    public CumulativeAggregates getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Returns the index of the records by borough. The index is built when the
+     * data set is created and extended whenever rows are appended; its getStore
+     * method returns the store it indexes.
+     *
+     * @return The borough index of the current records.
+     */
+    public BoroughIndex getBoroughIndex() {
+        return boroughIndex;
+    }
+
+    /**
+     * Returns the rolling averages, growth rates and other derived metrics of
+     * the records, per borough. They are replaced on the first call after rows
+     * have been appended, and each borough's series are computed on first use.
+     *
+     * @return The rolling-window analytics of the current records.
+     */
+    public RollingWindowAnalytics getRollingAnalytics() {
+        CovidDataStore current = store;
+        RollingWindowAnalytics analytics = rollingAnalytics;
+        if (analytics.getStore() != current) {
+            analytics = new RollingWindowAnalytics(current, aggregates);
+            rollingAnalytics = analytics;
+        }
+        return analytics;
+    }
+
+    /**
+     * Returns the records whose date falls within the given range, inclusive, as
+     * a slice of the backing store. No records are copied.
+     *
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return A store with the records within the date range.
+     */
+    public CovidDataStore getStore(LocalDate startDate, LocalDate endDate) {
+        return store.slice(startDate, endDate);
+    }
+
+    /**
+     * Returns all records of the data set.
+     *
+     * @return A read-only list of every loaded record.
+     */
+    public List<CovidData> getRecords() {
+        return store.rows();
+    }
+
+    /**
+     * Returns the records whose date falls within the given range, inclusive. The
+     * list is a view of the backing store, sorted by date and borough.
+     *
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return A read-only list of the records within the date range.
+     */
+    public List<CovidData> getRecords(LocalDate startDate, LocalDate endDate) {
+        return getStore(startDate, endDate).rows();
+    }
+
+    /**
+     * Returns the earliest and latest dates for which data is available.
+     *
+     * @return An array holding the first and the last date of the data set.
+     */
+    public LocalDate[] getDateRange() {
+        // The store is sorted by date, so the first and last rows hold the range.
+        CovidDataStore current = store;
+        if (current.size() == 0) {
+            return new LocalDate[] { LocalDate.MAX, LocalDate.MIN };
+        }
+        return new LocalDate[] { current.getDate(0), current.getDate(current.size() - 1) };
+    }
+
+    /**
+     * Returns the number of records in the data set.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * The numeric columns of the COVID dataset. The constants are declared in the
+ * same order as the columns of the csv file, starting with the first column
+ * after the borough name, so a metric's ordinal is also its column index in a
+ * CovidDataStore.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public enum CovidMetric {
+    RETAIL_RECREATION_GMR("Retail & Recreation Mobility"),
+    GROCERY_PHARMACY_GMR("Grocery & Pharmacy Mobility"),
+    PARKS_GMR("Parks Mobility"),
+    TRANSIT_GMR("Transit Mobility"),
+    WORKPLACES_GMR("Workplaces Mobility"),
+    RESIDENTIAL_GMR("Residential Mobility"),
+    NEW_CASES("New Cases"),
+    TOTAL_CASES("Total Cases"),
+    NEW_DEATHS("New Deaths"),
+    TOTAL_DEATHS("Total Deaths");
+
+    /*
+     * Cached copy of values(), which would otherwise allocate a new array on every
+     * call.
+     */
+    static final CovidMetric[] VALUES = values();
+
+    /*
+     * The number of numeric columns in the dataset.
+     */
+    public static final int COUNT = VALUES.length;
+
+    private final String displayName;
+
+    CovidMetric(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the value of this metric in the given record.
+     *
+     * @param data The record to read the value from.
+     * @return The value of this metric.
+     */
+    public int valueOf(CovidData data) {
+        switch (this) {
+        case RETAIL_RECREATION_GMR:
+            return data.getRetailRecreationGMR();
+        case GROCERY_PHARMACY_GMR:
+            return data.getGroceryPharmacyGMR();
+        case PARKS_GMR:
+            return data.getParksGMR();
+        case TRANSIT_GMR:
+            return data.getTransitGMR();
+        case WORKPLACES_GMR:
+            return data.getWorkplacesGMR();
+        case RESIDENTIAL_GMR:
+            return data.getResidentialGMR();
+        case NEW_CASES:
+            return data.getNewCases();
+        case TOTAL_CASES:
+            return data.getTotalCases();
+        case NEW_DEATHS:
+            return data.getNewDeaths();
+        default:
+            return data.getTotalDeaths();
+        }
+    }
+
+    /**
+     * Returns whether this metric is a Google mobility percentage rather than a
+     * case or death count.
+     *
+     * @return true for the six mobility metrics.
+     */
+    public boolean isMobility() {
+        return ordinal() <= RESIDENTIAL_GMR.ordinal();
+    }
+
+    /**
+     * Returns whether this metric is a running total, whose value on a day
+     * already includes every earlier day.
+     *
+     * @return true for total cases and total deaths.
+     */
+    public boolean isCumulative() {
+        return this == TOTAL_CASES || this == TOTAL_DEATHS;
+    }
+
+    /**
+     * Returns a human readable name of this metric.
+     *
+     * @return The display name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,372 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precomputed running totals of every metric, per borough and per day. With
+ * these, the sum, number of records or average of a metric over any date range
+ * is found with two lookups and a subtraction, however long the range is.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class CumulativeAggregates {
+    private final int minDay; // Epoch day of the first day covered.
+    private final int dayCount; // Number of days covered.
+    private final int boroughCount; // Number of boroughs covered.
+
+    /*
+     * Running totals for each metric. Entry (d * boroughCount + b) of a metric
+     * holds the sum of that metric in borough b over the first d days, so the
+     * first boroughCount entries are zeros. The London-wide totals hold the same
+     * over all boroughs, at entry d. Days come first so that later days can be
+     * added at the end; the arrays may be longer than the days covered.
+     */
+    private final long[][] boroughSums;
+    private final long[][] londonSums;
+
+    /*
+     * Running number of records, laid out like the sums above, because not every
+     * borough necessarily reports on every day.
+     */
+    private final int[] boroughCounts;
+    private final int[] londonCounts;
+
+    /*
+     * Number of days filled in by the latest aggregates sharing these arrays.
+     * Only those aggregates may extend the arrays in place.
+     */
+    private final AtomicInteger daysInUse;
+
+    /**
+     * Computes the running totals of every metric in a store.
+     *
+     * @param store The records to aggregate.
+     */
+    public CumulativeAggregates(CovidDataStore store) {
+        int[] dates = store.getDateColumn();
+        int from = store.getStartIndex();
+        int to = store.getEndIndex();
+
+        this.minDay = store.size() == 0 ? 0 : dates[from];
+        this.dayCount = store.size() == 0 ? 0 : dates[to - 1] - minDay + 1;
+        this.boroughCount = store.getBoroughCount();
+        int entries = (dayCount + 1) * boroughCount;
+
+        boroughSums = new long[CovidMetric.COUNT][entries];
+        londonSums = new long[CovidMetric.COUNT][dayCount + 1];
+        boroughCounts = new int[entries];
+        londonCounts = new int[dayCount + 1];
+        daysInUse = new AtomicInteger(dayCount);
+        accumulate(store, from, 0);
+    }
+
+    /**
+     * Creates aggregates covering more days than an earlier one, over the given
+     * arrays.
+     */
+    private CumulativeAggregates(CumulativeAggregates previous, int dayCount, long[][] boroughSums,
+            long[][] londonSums, int[] boroughCounts, int[] londonCounts, AtomicInteger daysInUse) {
+        this.minDay = previous.minDay;
+        this.dayCount = dayCount;
+        this.boroughCount = previous.boroughCount;
+        this.boroughSums = boroughSums;
+        this.londonSums = londonSums;
+        this.boroughCounts = boroughCounts;
+        this.londonCounts = londonCounts;
+        this.daysInUse = daysInUse;
+    }
+
+    /**
+     * Returns aggregates over a store made by appending rows to the store these
+     * aggregates were computed from, as done by CovidDataStore.append. Only the
+     * days after the ones already covered are computed, so the cost depends on
+     * the appended rows and days, not on the whole store. These aggregates stay
+     * valid and unchanged.
+     *
+     * @param store The store with the appended rows.
+     * @return Aggregates covering every day of the store.
+     * @throws IllegalArgumentException if the store has other boroughs or does
+     *                                  not continue the days covered.
+     */
+    public CumulativeAggregates extend(CovidDataStore store) {
+        if (store.getBoroughCount() != boroughCount || store.size() == 0 || dayCount == 0
+                || store.getEpochDay(0) != minDay) {
+            throw new IllegalArgumentException("The store does not extend the aggregated records");
+        }
+        int newDayCount = store.getEpochDay(store.size() - 1) - minDay + 1;
+        if (newDayCount <= dayCount) {
+            return this;
+        }
+
+        long[][] newBoroughSums = boroughSums;
+        long[][] newLondonSums = londonSums;
+        int[] newBoroughCounts = boroughCounts;
+        int[] newLondonCounts = londonCounts;
+        AtomicInteger newDaysInUse = daysInUse;
+        boolean inPlace = londonCounts.length > newDayCount && daysInUse.compareAndSet(dayCount, newDayCount);
+        if (!inPlace) {
+            // Grow the arrays geometrically, so that daily appends mostly fit.
+            int capacity = Math.max(newDayCount, 2 * dayCount) + 1;
+            newBoroughSums = new long[CovidMetric.COUNT][];
+            newLondonSums = new long[CovidMetric.COUNT][];
+            for (int m = 0; m < CovidMetric.COUNT; m++) {
+                newBoroughSums[m] = Arrays.copyOf(boroughSums[m], capacity * boroughCount);
+                newLondonSums[m] = Arrays.copyOf(londonSums[m], capacity);
+            }
+            newBoroughCounts = Arrays.copyOf(boroughCounts, capacity * boroughCount);
+            newLondonCounts = Arrays.copyOf(londonCounts, capacity);
+            newDaysInUse = new AtomicInteger(newDayCount);
+        }
+
+        CumulativeAggregates extended = new CumulativeAggregates(this, newDayCount, newBoroughSums, newLondonSums,
+                newBoroughCounts, newLondonCounts, newDaysInUse);
+        int firstNewRow = store.getFirstRowOnOrAfter(minDay + dayCount);
+        extended.accumulate(store, firstNewRow, dayCount);
+        return extended;
+    }
+
+    /**
+     * Fills in the running totals of the days after the first coveredDays days,
+     * from the rows of a date sorted store starting at the given row.
+     */
+    private void accumulate(CovidDataStore store, int fromRow, int coveredDays) {
+        int[] dates = store.getDateColumn();
+        short[] boroughIds = store.getBoroughColumn();
+        int[][] columns = new int[CovidMetric.COUNT][];
+        for (CovidMetric metric : CovidMetric.VALUES) {
+            columns[metric.ordinal()] = store.getColumn(metric);
+        }
+        int to = store.getEndIndex();
+
+        int row = fromRow;
+        for (int d = coveredDays + 1; d <= dayCount; d++) {
+            // Start from the totals of the previous day, then add the day's records.
+            int previous = (d - 1) * boroughCount;
+            int current = d * boroughCount;
+            System.arraycopy(boroughCounts, previous, boroughCounts, current, boroughCount);
+            londonCounts[d] = londonCounts[d - 1];
+            for (int m = 0; m < CovidMetric.COUNT; m++) {
+                System.arraycopy(boroughSums[m], previous, boroughSums[m], current, boroughCount);
+                londonSums[m][d] = londonSums[m][d - 1];
+            }
+            for (; row < to && dates[row] - minDay + 1 == d; row++) {
+                int cell = current + boroughIds[row];
+                boroughCounts[cell]++;
+                londonCounts[d]++;
+                for (int m = 0; m < CovidMetric.COUNT; m++) {
+                    boroughSums[m][cell] += columns[m][row];
+                    londonSums[m][d] += columns[m][row];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the London-wide sum of a metric over a date range, inclusive.
+     *
+     * @param metric    The metric to add up.
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return The sum of the metric over all records in the range.
+     */
+    public long sum(CovidMetric metric, LocalDate startDate, LocalDate endDate) {
+        return sum(metric, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+    }
+
+    /**
+     * Returns the London-wide sum of a metric over a range of epoch days,
+     * inclusive.
+     *
+     * @param metric   The metric to add up.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The sum of the metric over all records in the range.
+     */
+    public long sum(CovidMetric metric, int startDay, int endDay) {
+        int from = offset(startDay);
+        int to = offset(endDay + 1);
+        long[] sums = londonSums[metric.ordinal()];
+        return to > from ? sums[to] - sums[from] : 0;
+    }
+
+    /**
+     * Returns the sum of a metric in one borough over a range of epoch days,
+     * inclusive.
+     *
+     * @param metric    The metric to add up.
+     * @param boroughId The id of the borough in the store's borough dictionary.
+     * @param startDay  The first epoch day of the range.
+     * @param endDay    The last epoch day of the range.
+     * @return The sum of the metric over the borough's records in the range.
+     */
+    public long sum(CovidMetric metric, int boroughId, int startDay, int endDay) {
+        int from = offset(startDay);
+        int to = offset(endDay + 1);
+        long[] sums = boroughSums[metric.ordinal()];
+        return to > from ? sums[to * boroughCount + boroughId] - sums[from * boroughCount + boroughId] : 0;
+    }
+
+    /**
+     * Returns the sum of a metric in every borough over a range of epoch days,
+     * inclusive. The running totals of all boroughs for a day sit next to each
+     * other, so this is a single pass over two rows of boroughCount entries.
+     *
+     * @param metric   The metric to add up.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The sums, indexed by borough id.
+     */
+    public long[] sumByBorough(CovidMetric metric, int startDay, int endDay) {
+        return sumByBorough(metric, startDay, endDay, new long[boroughCount]);
+    }
+
+    /**
+     * Like sumByBorough(metric, startDay, endDay), but writes the sums into a
+     * given array, so that repeated queries, such as the frames of an animation,
+     * allocate nothing.
+     *
+     * @param metric   The metric to add up.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @param result   The array receiving the sums, at least boroughCount long.
+     * @return The given array.
+     */
+    public long[] sumByBorough(CovidMetric metric, int startDay, int endDay, long[] result) {
+        int from = offset(startDay) * boroughCount;
+        int to = offset(endDay + 1) * boroughCount;
+        long[] sums = boroughSums[metric.ordinal()];
+        if (to > from) {
+            for (int b = 0; b < boroughCount; b++) {
+                result[b] = sums[to + b] - sums[from + b];
+            }
+        } else {
+            Arrays.fill(result, 0, boroughCount, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of records of every borough over a range of epoch
+     * days, inclusive.
+     *
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The numbers of records, indexed by borough id.
+     */
+    public int[] countByBorough(int startDay, int endDay) {
+        return countByBorough(startDay, endDay, new int[boroughCount]);
+    }
+
+    /**
+     * Like countByBorough(startDay, endDay), but writes the numbers into a given
+     * array.
+     *
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @param result   The array receiving the numbers, at least boroughCount long.
+     * @return The given array.
+     */
+    public int[] countByBorough(int startDay, int endDay, int[] result) {
+        int from = offset(startDay) * boroughCount;
+        int to = offset(endDay + 1) * boroughCount;
+        if (to > from) {
+            for (int b = 0; b < boroughCount; b++) {
+                result[b] = boroughCounts[to + b] - boroughCounts[from + b];
+            }
+        } else {
+            Arrays.fill(result, 0, boroughCount, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of London-wide records over a range of epoch days,
+     * inclusive.
+     *
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The number of records in the range.
+     */
+    public int count(int startDay, int endDay) {
+        int from = offset(startDay);
+        int to = offset(endDay + 1);
+        return to > from ? londonCounts[to] - londonCounts[from] : 0;
+    }
+
+    /**
+     * Returns the number of records of one borough over a range of epoch days,
+     * inclusive.
+     *
+     * @param boroughId The id of the borough in the store's borough dictionary.
+     * @param startDay  The first epoch day of the range.
+     * @param endDay    The last epoch day of the range.
+     * @return The number of the borough's records in the range.
+     */
+    public int count(int boroughId, int startDay, int endDay) {
+        int from = offset(startDay);
+        int to = offset(endDay + 1);
+        return to > from ? boroughCounts[to * boroughCount + boroughId] - boroughCounts[from * boroughCount + boroughId]
+                : 0;
+    }
+
+    /**
+     * Returns the London-wide average of a metric over a range of epoch days,
+     * inclusive.
+     *
+     * @param metric   The metric to average.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The average value of the metric, or 0 if there are no records.
+     */
+    public double average(CovidMetric metric, int startDay, int endDay) {
+        int count = count(startDay, endDay);
+        return count == 0 ? 0 : (double) sum(metric, startDay, endDay) / count;
+    }
+
+    /**
+     * Adds the value of a metric and the number of records on every day of a
+     * range to the entries of two arrays, for one borough or for all of London.
+     * Each day takes one subtraction of consecutive running totals, so a daily
+     * series for any set of boroughs is read from the totals without visiting
+     * the records.
+     *
+     * @param metric    The metric to read.
+     * @param boroughId The id of the borough in the store's borough dictionary,
+     *                  or -1 for the London-wide values.
+     * @param startDay  The first epoch day of the range.
+     * @param endDay    The last epoch day of the range.
+     * @param sums      Entry i receives the sum of the metric on startDay + i.
+     * @param counts    Entry i receives the number of records on startDay + i.
+     */
+    public void addDailyValues(CovidMetric metric, int boroughId, int startDay, int endDay, long[] sums,
+            int[] counts) {
+        long[] totals = boroughId < 0 ? londonSums[metric.ordinal()] : boroughSums[metric.ordinal()];
+        int[] recordCounts = boroughId < 0 ? londonCounts : boroughCounts;
+        int stride = boroughId < 0 ? 1 : boroughCount;
+        int column = boroughId < 0 ? 0 : boroughId;
+        for (int day = Math.max(startDay, minDay); day <= endDay && day < minDay + dayCount; day++) {
+            int from = (day - minDay) * stride + column;
+            int to = from + stride;
+            sums[day - startDay] += totals[to] - totals[from];
+            counts[day - startDay] += recordCounts[to] - recordCounts[from];
+        }
+    }
+
+    /**
+     * Returns the number of boroughs covered.
+     *
+     * @return The number of boroughs.
+     */
+    public int getBoroughCount() {
+        return boroughCount;
+    }
+
+    /**
+     * Converts an epoch day into a position within a row of running totals,
+     * clamped to the days covered.
+     */
+    private int offset(int day) {
+        return Math.max(0, Math.min(dayCount, day - minDay));
+    }
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CumulativeAggregates class. It checks
+ * that range sums, counts and averages looked up from the running totals match
+ * the values added up from the records.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class CumulativeAggregatesTest {
+    private CovidDataStore store;
+    private CumulativeAggregates aggregates;
+    private int firstDay;
+
+    /**
+     * Sets up two boroughs over four days, with one day missing for Barnet.
+     */
+    @BeforeEach
+    void setUp() {
+        List<CovidData> covidDataList = new ArrayList<>();
+        covidDataList.add(new CovidData("2022-10-13", "Barnet", -15, 6, 28, -8, -31, 3, 17, 72895, 0, 614));
+        covidDataList.add(new CovidData("2022-10-14", "Barnet", -15, 10, 29, -11, -29, 3, 12, 72907, 1, 615));
+        covidDataList.add(new CovidData("2022-10-16", "Barnet", -17, 2, 27, -6, -19, 0, 11, 72918, 2, 617));
+        covidDataList.add(new CovidData("2022-10-13", "Bexley", -20, 1, 20, -5, -10, 1, 9, 50000, 0, 300));
+        covidDataList.add(new CovidData("2022-10-14", "Bexley", -21, 1, 20, -5, -10, 1, 4, 50004, 3, 303));
+        covidDataList.add(new CovidData("2022-10-15", "Bexley", -22, 1, 20, -5, -10, 1, 6, 50010, 0, 303));
+        covidDataList.add(new CovidData("2022-10-16", "Bexley", -23, 1, 20, -5, -10, 1, 5, 50015, 1, 304));
+        store = CovidDataStore.fromRecords(covidDataList);
+        aggregates = new CumulativeAggregates(store);
+        firstDay = store.getEpochDay(0);
+    }
+
+    /**
+     * Tests London-wide sums and counts over part of the data.
+     */
+    @Test
+    void sum_overAllBoroughs() {
+        assertEquals(12 + 4 + 6, aggregates.sum(CovidMetric.NEW_CASES, firstDay + 1, firstDay + 2));
+        assertEquals(3, aggregates.count(firstDay + 1, firstDay + 2));
+        assertEquals(7, aggregates.count(firstDay - 10, firstDay + 10));
+        assertEquals((12 + 4 + 6) / 3.0, aggregates.average(CovidMetric.NEW_CASES, firstDay + 1, firstDay + 2));
+    }
+
+    /**
+     * Tests per borough sums, including a day on which a borough has no record.
+     */
+    @Test
+    void sum_forOneBorough() {
+        assertEquals(3, aggregates.sum(CovidMetric.NEW_DEATHS, 0, firstDay, firstDay + 3));
+        assertEquals(2, aggregates.sum(CovidMetric.NEW_DEATHS, 0, firstDay + 2, firstDay + 3));
+        assertEquals(1, aggregates.count(0, firstDay + 2, firstDay + 3));
+        assertEquals(0, aggregates.count(0, firstDay + 2, firstDay + 2));
+        assertEquals(4, aggregates.sum(CovidMetric.NEW_DEATHS, 1, firstDay, firstDay + 3));
+    }
+
+    /**
+     * Tests that the sums and counts of all boroughs at once match the per
+     * borough queries.
+     */
+    @Test
+    void sumByBorough_matchesSingleBoroughQueries() {
+        long[] sums = aggregates.sumByBorough(CovidMetric.NEW_CASES, firstDay + 1, firstDay + 3);
+        int[] counts = aggregates.countByBorough(firstDay + 1, firstDay + 3);
+        assertArrayEquals(new long[] { 12 + 11, 4 + 6 + 5 }, sums);
+        assertArrayEquals(new int[] { 2, 3 }, counts);
+        assertArrayEquals(new long[2], aggregates.sumByBorough(CovidMetric.NEW_CASES, firstDay + 3, firstDay));
+    }
+
+    /**
+     * Tests that empty and reversed ranges add up to nothing.
+     */
+    @Test
+    void sum_emptyRange() {
+        assertEquals(0, aggregates.sum(CovidMetric.NEW_CASES, firstDay + 2, firstDay + 1));
+        assertEquals(0, aggregates.sum(CovidMetric.NEW_CASES, firstDay + 10, firstDay + 20));
+        assertEquals(0, aggregates.average(CovidMetric.NEW_CASES, firstDay - 5, firstDay - 1));
+    }
+
+    /**
+     * Tests that daily values match the records, for one borough and for London,
+     * including days outside the data.
+     */
+    @Test
+    void addDailyValues_readsEveryDay() {
+        long[] sums = new long[6];
+        int[] counts = new int[6];
+        aggregates.addDailyValues(CovidMetric.NEW_CASES, 0, firstDay - 1, firstDay + 4, sums, counts);
+        assertArrayEquals(new long[] { 0, 17, 12, 0, 11, 0 }, sums);
+        assertArrayEquals(new int[] { 0, 1, 1, 0, 1, 0 }, counts);
+
+        aggregates.addDailyValues(CovidMetric.NEW_CASES, -1, firstDay - 1, firstDay + 4, sums, counts);
+        assertArrayEquals(new long[] { 0, 17 + 26, 12 + 16, 6, 11 + 16, 0 }, sums);
+        assertArrayEquals(new int[] { 0, 3, 3, 1, 3, 0 }, counts);
+    }
+}
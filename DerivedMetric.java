@@ -0,0 +1,82 @@
+/**
+ * Metrics derived from the daily new cases or new deaths over a sliding window
+ * of days: rolling averages, the growth from one week to the next, the time the
+ * case rate takes to double, and an estimate of the reproduction number. They
+ * are computed by RollingWindowAnalytics for London and for every borough.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public enum DerivedMetric {
+    NEW_CASES_7_DAY_AVERAGE("New Cases, 7-Day Average", CovidMetric.NEW_CASES, 7),
+    NEW_CASES_14_DAY_AVERAGE("New Cases, 14-Day Average", CovidMetric.NEW_CASES, 14),
+    NEW_DEATHS_7_DAY_AVERAGE("New Deaths, 7-Day Average", CovidMetric.NEW_DEATHS, 7),
+    NEW_DEATHS_14_DAY_AVERAGE("New Deaths, 14-Day Average", CovidMetric.NEW_DEATHS, 14),
+    NEW_CASES_WEEKLY_GROWTH("Weekly Growth of New Cases (%)", CovidMetric.NEW_CASES, 7),
+    NEW_DEATHS_WEEKLY_GROWTH("Weekly Growth of New Deaths (%)", CovidMetric.NEW_DEATHS, 7),
+    NEW_CASES_DOUBLING_TIME("Doubling Time of New Cases (Days)", CovidMetric.NEW_CASES, 7),
+    REPRODUCTION_NUMBER("Estimated Reproduction Number", CovidMetric.NEW_CASES, 7);
+
+    /*
+     * Cached copy of values(), which would otherwise allocate a new array on every
+     * call.
+     */
+    static final DerivedMetric[] VALUES = values();
+
+    /*
+     * The number of derived metrics.
+     */
+    public static final int COUNT = VALUES.length;
+
+    private final String displayName;
+    private final CovidMetric source;
+    private final int window;
+
+    DerivedMetric(String displayName, CovidMetric source, int window) {
+        this.displayName = displayName;
+        this.source = source;
+        this.window = window;
+    }
+
+    /**
+     * Returns the daily metric this metric is derived from.
+     *
+     * @return New cases or new deaths.
+     */
+    public CovidMetric getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of days the daily values are averaged over.
+     *
+     * @return The length of the sliding window in days.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns whether this metric is a rolling average of its source, as opposed
+     * to a rate computed from two weekly averages.
+     *
+     * @return true for the 7 and 14-day averages.
+     */
+    public boolean isAverage() {
+        return ordinal() <= NEW_DEATHS_14_DAY_AVERAGE.ordinal();
+    }
+
+    /**
+     * Returns a human readable name of this metric.
+     *
+     * @return The display name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -1,16 +1,32 @@
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.scene.chart.CategoryAxis;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.util.StringConverter;
 
 /**
  * Manages the presentation and updating of a line chart that displays COVID-19
@@ -18,31 +34,158 @@ import javafx.scene.layout.BorderPane;
  * specified date range and updates the chart to reflect trends in total cases
  * and total deaths.
  *
+ * Further series can be overlaid on the chart, each showing one metric for
+ * London or for a chosen set of boroughs. Their daily values are read from the
+ * running totals of the data set, which hold every metric per borough and per
+ * day, so adding a series does not visit the records. Derived metrics, such as
+ * rolling averages and growth rates, are read from the data set's
+ * rolling-window analytics.
+ *
  * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
  * @version 24.03.2024
  */
 
 public class LineChartController {
 
-    private CovidDataLoader loader = new CovidDataLoader();
-    @FXML
-    private LineChart<String, Number> lineChart;
-    @FXML
-    private CategoryAxis xAxis;
-    @FXML
-    private NumberAxis yAxis;
+    private CovidDataset dataset; // Shared data set the chart is drawn from.
     @FXML
     private BorderPane LineChartPanel;
 
+    /*
+     * The chart shown, with a numeric time axis: x values are epoch days, and the
+     * tick labels are the dates they stand for. It replaces the chart of the FXML
+     * file, whose x axis is a category axis.
+     */
+    private final NumberAxis xAxis = new NumberAxis();
+    private final NumberAxis yAxis = new NumberAxis();
+    private final LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
+
+    // Level of detail: every series is downsampled to about one point per few
+    // pixels of the chart's width, and sampled again when the width changes.
+    private static final double PIXELS_PER_POINT = 3;
+    private static final int MIN_POINT_BUDGET = 50;
+    private static final int DEFAULT_POINT_BUDGET = 300; // Used before the chart has been laid out.
+    private static final double RESAMPLE_RATIO = 1.2; // Change of the budget that triggers sampling again.
+    private static final int[] TICK_UNITS = { 1, 7, 14, 28, 61, 91, 182, 365 }; // Days between date ticks.
+    private static final int TARGET_TICK_COUNT = 8;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("d MMM yyyy");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMM yyyy");
+
+    private static final int ANIMATED_CHANGE_LIMIT = 40; // Most points added or removed with animation.
+
+    // The series shown before any is added: London-wide total cases and deaths.
+    private static final List<Overlay> DEFAULT_OVERLAYS = List.of(new Overlay(CovidMetric.TOTAL_CASES, List.of()),
+            new Overlay(CovidMetric.TOTAL_DEATHS, List.of()));
+
+    // The series to show, read by computeLineChart on a background thread. The
+    // list is replaced, never modified.
+    private volatile List<Overlay> overlays = DEFAULT_OVERLAYS;
+
+    // The series of the chart, kept while their overlay is shown so that a new
+    // range only adds and removes the points that differ, in ascending order of
+    // epoch day.
+    private final Map<Overlay, XYChart.Series<Number, Number>> shownSeries = new LinkedHashMap<>();
+
+    private ChartData shownData; // The data the chart shows, null before the first range.
+    private int shownPointBudget; // The number of points per series the data was sampled to.
+
+    // Controls for adding series.
+    private final ChoiceBox<Enum<?>> metricChoice = new ChoiceBox<>();
+    private final MenuButton boroughMenu = new MenuButton("London");
+
     /**
      * Initializes the line chart with proper labels and settings.
      */
     @FXML
     private void initialize() {
+        lineChart.setId("lineChart");
+        LineChartPanel.setCenter(lineChart);
+        xAxis.setAutoRanging(false);
+        xAxis.setMinorTickVisible(false);
         xAxis.setLabel("Date");
         yAxis.setLabel("Cases");
         lineChart.setTitle("COVID-19 Cases");
         lineChart.setLegendVisible(true);
+        lineChart.widthProperty().addListener((observable, oldWidth, newWidth) -> {
+            int budget = getPointBudget();
+            if (shownData != null && (budget > shownPointBudget * RESAMPLE_RATIO
+                    || budget * RESAMPLE_RATIO < shownPointBudget)) {
+                showData(shownData);
+            }
+        });
+
+        metricChoice.getItems().setAll(CovidMetric.VALUES);
+        metricChoice.getItems().addAll(DerivedMetric.VALUES);
+        metricChoice.setValue(CovidMetric.NEW_CASES);
+        Button addButton = new Button("Add series");
+        addButton.setOnAction(event -> addOverlay());
+        Button resetButton = new Button("Reset");
+        resetButton.setOnAction(event -> setOverlays(DEFAULT_OVERLAYS));
+        HBox controls = new HBox(8, new Label("Metric:"), metricChoice, new Label("Boroughs:"), boroughMenu, addButton,
+                resetButton);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(5));
+        LineChartPanel.setTop(controls);
+    }
+
+    /**
+     * Sets the data set the line chart is drawn from, and lists its boroughs in
+     * the borough menu.
+     * 
+     * @param dataset The loaded COVID data set.
+     */
+    public void setDataset(CovidDataset dataset) {
+        this.dataset = dataset;
+        CovidDataStore store = dataset.getStore();
+        List<MenuItem> items = new ArrayList<>();
+        for (int id = 0; id < store.getBoroughCount(); id++) {
+            CheckMenuItem item = new CheckMenuItem(store.getBoroughName(id));
+            item.selectedProperty().addListener((observable, wasSelected, isSelected) -> updateBoroughMenuText());
+            items.add(item);
+        }
+        boroughMenu.getItems().setAll(items);
+    }
+
+    /**
+     * Returns the names of the boroughs checked in the borough menu.
+     */
+    private List<String> getSelectedBoroughs() {
+        List<String> boroughs = new ArrayList<>();
+        for (MenuItem item : boroughMenu.getItems()) {
+            if (((CheckMenuItem) item).isSelected()) {
+                boroughs.add(item.getText());
+            }
+        }
+        return boroughs;
+    }
+
+    private void updateBoroughMenuText() {
+        List<String> boroughs = getSelectedBoroughs();
+        boroughMenu.setText(boroughs.isEmpty() ? "London" : Overlay.describe(boroughs));
+    }
+
+    /**
+     * Overlays the metric chosen for the boroughs checked, or for London if none
+     * is checked, unless that series is already shown.
+     */
+    private void addOverlay() {
+        Overlay overlay = new Overlay(metricChoice.getValue(), getSelectedBoroughs());
+        if (!overlays.contains(overlay)) {
+            List<Overlay> newOverlays = new ArrayList<>(overlays);
+            newOverlays.add(overlay);
+            setOverlays(List.copyOf(newOverlays));
+        }
+    }
+
+    /**
+     * Replaces the series to show, and shows them for the range shown. Only the
+     * series not shown before are computed.
+     */
+    private void setOverlays(List<Overlay> newOverlays) {
+        overlays = newOverlays;
+        if (shownData != null) {
+            updateLineChart(shownData.startDate, shownData.endDate);
+        }
     }
 
     /**
@@ -52,61 +195,422 @@ public class LineChartController {
      * @param endDate   The end date of the range.
      */
     public void updateLineChart(LocalDate startDate, LocalDate endDate) {
-        ArrayList<CovidData> covidDataList = loader.load();
-        ArrayList<CovidData> filteredDataList = filterDataByDateRange(covidDataList, startDate, endDate);
+        applyLineChart(computeLineChart(startDate, endDate));
+    }
 
-        // Maps to store total cases and deaths by date.
-        Map<LocalDate, Integer> totalCasesMap = new TreeMap<>();
-        Map<LocalDate, Integer> totalDeathsMap = new TreeMap<>();
+    /**
+     * Computes the daily values of every series for a date range without
+     * touching the chart, so it can be called from a background thread. The
+     * values of each series are kept in the data set's query cache, so a series
+     * already shown for the range is a single lookup.
+     * 
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return The data to be passed to applyLineChart.
+     */
+    public ChartData computeLineChart(LocalDate startDate, LocalDate endDate) {
+        return computeLineChart(startDate, endDate, () -> false);
+    }
 
-        // Populate the maps with aggregated data.
-        for (CovidData data : filteredDataList) {
-            LocalDate date = data.getDate();
-            totalCasesMap.merge(date, data.getTotalCases(), Integer::sum);
-            totalDeathsMap.merge(date, data.getTotalDeaths(), Integer::sum);
+    /**
+     * Computes the daily values of every series for a date range, as
+     * computeLineChart does, stopping before the next series once the range is
+     * no longer wanted.
+     * 
+     * @param startDate  The start date of the range.
+     * @param endDate    The end date of the range.
+     * @param superseded Tells whether a newer range has been selected.
+     * @return The data to be passed to applyLineChart.
+     * @throws CancellationException If the range was superseded before every
+     *                               series was computed.
+     */
+    public ChartData computeLineChart(LocalDate startDate, LocalDate endDate, BooleanSupplier superseded) {
+        List<Overlay> chartOverlays = overlays;
+        List<SeriesValues> values = new ArrayList<>(chartOverlays.size());
+        for (Overlay overlay : chartOverlays) {
+            if (superseded.getAsBoolean()) {
+                throw new CancellationException("A newer date range has been selected");
+            }
+            values.add(dataset.getQueryCache().get(QueryCache.Kind.LINE_CHART, overlay, startDate, endDate,
+                    () -> new SeriesValues(overlay, dataset, startDate, endDate), SeriesValues::estimateSize));
         }
+        return new ChartData(startDate, endDate, chartOverlays, values);
+    }
 
-        // Series for total cases and total deaths.
-        XYChart.Series<String, Number> totalCasesSeries = new XYChart.Series<>();
-        totalCasesSeries.setName("Total Cases");
-        XYChart.Series<String, Number> totalDeathsSeries = new XYChart.Series<>();
-        totalDeathsSeries.setName("Total Deaths");
+    /**
+     * Shows computed data in the chart, sampled down to the number of points the
+     * chart's width can show. Must be called on the JavaFX Application Thread.
+     * 
+     * @param data The data returned by computeLineChart.
+     */
+    public void applyLineChart(ChartData data) {
+        if (data.overlays != overlays) {
+            // Series were added or removed while the data was computed.
+            data = computeLineChart(data.startDate, data.endDate);
+        }
+        showData(data);
+    }
 
-        // Formatter for the date label.
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy");
+    /**
+     * Updates the series of the chart to the downsampled data. Points already
+     * shown for a day that is still sampled are kept, so moving the range only
+     * adds and removes the points near its ends. Updates changing many points are
+     * not animated.
+     */
+    private void showData(ChartData data) {
+        int pointBudget = getPointBudget();
+        int[][] kept = new int[data.overlays.size()][];
+        int changes = 0;
+        for (int i = 0; i < kept.length; i++) {
+            SeriesValues values = data.values.get(i);
+            kept[i] = SeriesDownsampler.alignedLargestTriangleThreeBuckets(values.epochDays, values.values,
+                    values.epochDays.length, pointBudget);
+            XYChart.Series<Number, Number> series = shownSeries.get(data.overlays.get(i));
+            changes += series == null ? kept[i].length : countChanges(series.getData(), values.epochDays, kept[i]);
+        }
+        for (Map.Entry<Overlay, XYChart.Series<Number, Number>> entry : shownSeries.entrySet()) {
+            if (!data.overlays.contains(entry.getKey())) {
+                changes += entry.getValue().getData().size();
+            }
+        }
 
-        // Populate series with formatted data.
-        for (Map.Entry<LocalDate, Integer> entry : totalCasesMap.entrySet()) {
-            String formattedDate = entry.getKey().format(formatter);
-            int totalCases = entry.getValue();
-            totalCasesSeries.getData().add(new XYChart.Data<>(formattedDate, totalCases));
+        lineChart.setAnimated(changes <= ANIMATED_CHANGE_LIMIT);
+        updateDateAxis(data.startDate, data.endDate);
+        Iterator<Map.Entry<Overlay, XYChart.Series<Number, Number>>> shown = shownSeries.entrySet().iterator();
+        while (shown.hasNext()) {
+            Map.Entry<Overlay, XYChart.Series<Number, Number>> entry = shown.next();
+            if (!data.overlays.contains(entry.getKey())) {
+                lineChart.getData().remove(entry.getValue());
+                shown.remove();
+            }
+        }
+        for (int i = 0; i < kept.length; i++) {
+            Overlay overlay = data.overlays.get(i);
+            SeriesValues values = data.values.get(i);
+            XYChart.Series<Number, Number> series = shownSeries.get(overlay);
+            if (series == null) {
+                series = new XYChart.Series<>();
+                series.setName(overlay.getName());
+                updateSeries(series.getData(), values.epochDays, values.values, kept[i]);
+                lineChart.getData().add(series);
+                shownSeries.put(overlay, series);
+            } else {
+                updateSeries(series.getData(), values.epochDays, values.values, kept[i]);
+            }
         }
+        yAxis.setLabel(getValueLabel(data.overlays));
+        shownData = data;
+        shownPointBudget = pointBudget;
+    }
 
-        for (Map.Entry<LocalDate, Integer> entry : totalDeathsMap.entrySet()) {
-            String formattedDate = entry.getKey().format(formatter);
-            int totalDeaths = entry.getValue();
-            totalDeathsSeries.getData().add(new XYChart.Data<>(formattedDate, totalDeaths));
+    /**
+     * Returns the label of the value axis: the metric if every series shows the
+     * same one, as cases unless a mobility metric or a derived rate is among
+     * them.
+     */
+    private static String getValueLabel(List<Overlay> overlays) {
+        boolean counts = true;
+        for (Overlay overlay : overlays) {
+            if (overlay.metric instanceof DerivedMetric) {
+                counts &= ((DerivedMetric) overlay.metric).isAverage();
+            } else {
+                counts &= !((CovidMetric) overlay.metric).isMobility();
+            }
         }
+        if (overlays.size() > 0 && overlays.stream().allMatch(o -> o.metric == overlays.get(0).metric)) {
+            return overlays.get(0).metric.toString();
+        }
+        return counts ? "Cases" : "Value";
+    }
 
-        // Clear previous data and add new series to the chart.
-        lineChart.getData().clear();
-        lineChart.getData().addAll(totalCasesSeries, totalDeathsSeries);
+    /**
+     * Counts the days that are shown but no longer kept, or kept but not shown.
+     */
+    private static int countChanges(List<XYChart.Data<Number, Number>> data, int[] epochDays, int[] kept) {
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < data.size() || j < kept.length) {
+            int shownDay = i < data.size() ? data.get(i).getXValue().intValue() : Integer.MAX_VALUE;
+            int keptDay = j < kept.length ? epochDays[kept[j]] : Integer.MAX_VALUE;
+            if (shownDay != keptDay) {
+                changes++;
+            }
+            if (shownDay <= keptDay) {
+                i++;
+            }
+            if (keptDay <= shownDay) {
+                j++;
+            }
+        }
+        return changes;
     }
 
     /**
-     * Filters the list of COVID data to only include records within the specified
-     * date range.
-     * 
-     * @param dataList  The full list of COVID data.
-     * @param startDate The start date of the range.
-     * @param endDate   The end date of the range.
-     * @return A filtered list of COVID data.
+     * Makes the points of a series those of the kept days: removes the points of
+     * days no longer kept, inserts points for newly kept days, and updates the
+     * value of the others where it has changed. Consecutive removals and
+     * insertions are made in one change each.
+     */
+    private static void updateSeries(ObservableList<XYChart.Data<Number, Number>> data, int[] epochDays,
+            double[] values, int[] kept) {
+        // Remove the points of days no longer kept, from the back so indices stay valid.
+        boolean[] keep = new boolean[data.size()];
+        for (int i = 0, j = 0; i < data.size(); i++) {
+            int day = data.get(i).getXValue().intValue();
+            while (j < kept.length && epochDays[kept[j]] < day) {
+                j++;
+            }
+            keep[i] = j < kept.length && epochDays[kept[j]] == day;
+        }
+        for (int end = data.size(); end > 0;) {
+            if (keep[end - 1]) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !keep[start - 1]) {
+                start--;
+            }
+            data.remove(start, end);
+            end = start;
+        }
+
+        // Every point left is of a kept day, so the new days go in between them.
+        int i = 0;
+        int j = 0;
+        while (j < kept.length) {
+            int day = epochDays[kept[j]];
+            if (i < data.size() && data.get(i).getXValue().intValue() == day) {
+                XYChart.Data<Number, Number> point = data.get(i);
+                if (point.getYValue().doubleValue() != values[kept[j]]) {
+                    point.setYValue(values[kept[j]]);
+                }
+                i++;
+                j++;
+                continue;
+            }
+            List<XYChart.Data<Number, Number>> inserted = new ArrayList<>();
+            while (j < kept.length && (i >= data.size() || epochDays[kept[j]] < data.get(i).getXValue().intValue())) {
+                inserted.add(new XYChart.Data<>(epochDays[kept[j]], values[kept[j]]));
+                j++;
+            }
+            data.addAll(i, inserted);
+            i += inserted.size();
+        }
+    }
+
+    /**
+     * Fits the time axis to a date range, with ticks a whole number of days,
+     * weeks, months or years apart, labelled with their dates.
+     */
+    private void updateDateAxis(LocalDate startDate, LocalDate endDate) {
+        int firstDay = (int) startDate.toEpochDay();
+        int lastDay = Math.max((int) endDate.toEpochDay(), firstDay + 1);
+        int tickUnit = TICK_UNITS[TICK_UNITS.length - 1];
+        for (int unit : TICK_UNITS) {
+            if ((lastDay - firstDay) / unit <= TARGET_TICK_COUNT) {
+                tickUnit = unit;
+                break;
+            }
+        }
+        DateTimeFormatter format = tickUnit < 28 ? DAY_FORMAT : MONTH_FORMAT;
+        xAxis.setLowerBound(firstDay);
+        xAxis.setUpperBound(lastDay);
+        xAxis.setTickUnit(tickUnit);
+        xAxis.setTickLabelFormatter(new StringConverter<Number>() {
+            @Override
+            public String toString(Number epochDay) {
+                return LocalDate.ofEpochDay(epochDay.longValue()).format(format);
+            }
+
+            @Override
+            public Number fromString(String date) {
+                return LocalDate.parse(date, format).toEpochDay();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of points per series the chart's current width can
+     * show.
+     */
+    private int getPointBudget() {
+        double width = lineChart.getWidth();
+        if (width <= 0) {
+            return DEFAULT_POINT_BUDGET;
+        }
+        return Math.max(MIN_POINT_BUDGET, (int) (width / PIXELS_PER_POINT));
+    }
+
+    /**
+     * The daily values of every series shown for a date range.
+     */
+    public static class ChartData {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final List<Overlay> overlays;
+        private final List<SeriesValues> values; // Values of each overlay, in the same order.
+
+        private ChartData(LocalDate startDate, LocalDate endDate, List<Overlay> overlays, List<SeriesValues> values) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.overlays = overlays;
+            this.values = values;
+        }
+    }
+
+    /**
+     * One series of the chart: a metric for London or for a set of boroughs. For
+     * a set of boroughs the daily value is their sum, or for a mobility metric
+     * the average over their records; a derived metric is computed from their
+     * summed daily values.
+     */
+    public static final class Overlay {
+        private static final int NAMED_BOROUGHS = 3; // Boroughs named in a series name before the rest are counted.
+
+        private final Enum<?> metric; // A CovidMetric or a DerivedMetric.
+        private final List<String> boroughs; // Sorted borough names, empty for London.
+
+        /**
+         * Creates a series description.
+         * 
+         * @param metric   The metric shown.
+         * @param boroughs The names of the boroughs, or none for London.
+         */
+        public Overlay(CovidMetric metric, Collection<String> boroughs) {
+            this((Enum<?>) metric, boroughs);
+        }
+
+        /**
+         * Creates a description of a series of a derived metric.
+         * 
+         * @param metric   The derived metric shown.
+         * @param boroughs The names of the boroughs, or none for London.
+         */
+        public Overlay(DerivedMetric metric, Collection<String> boroughs) {
+            this((Enum<?>) metric, boroughs);
+        }
+
+        private Overlay(Enum<?> metric, Collection<String> boroughs) {
+            this.metric = metric;
+            List<String> sorted = new ArrayList<>(boroughs);
+            sorted.sort(null);
+            this.boroughs = List.copyOf(sorted);
+        }
+
+        /**
+         * Returns the name shown in the chart's legend: the metric, followed by
+         * the boroughs unless the series is London-wide.
+         * 
+         * @return The series name.
+         */
+        public String getName() {
+            return boroughs.isEmpty() ? metric.toString() : metric + " (" + describe(boroughs) + ")";
+        }
+
+        /**
+         * Names a few boroughs, counting the others.
+         */
+        static String describe(List<String> boroughs) {
+            if (boroughs.size() <= NAMED_BOROUGHS) {
+                return String.join(", ", boroughs);
+            }
+            return String.join(", ", boroughs.subList(0, NAMED_BOROUGHS)) + " and "
+                    + (boroughs.size() - NAMED_BOROUGHS) + " more";
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Overlay)) {
+                return false;
+            }
+            Overlay overlay = (Overlay) other;
+            return metric == overlay.metric && boroughs.equals(overlay.boroughs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(metric, boroughs);
+        }
+    }
+
+    /**
+     * The value of one series on every day of a date range with records.
      */
-    private ArrayList<CovidData> filterDataByDateRange(ArrayList<CovidData> dataList, LocalDate startDate,
-            LocalDate endDate) {
-        return new ArrayList<>(dataList.stream()
-                .filter(data -> !data.getDate().isBefore(startDate) && !data.getDate().isAfter(endDate))
-                .collect(Collectors.toList()));
+    private static class SeriesValues {
+        private final int[] epochDays;
+        private final double[] values;
+
+        /**
+         * Reads the daily values of a series from the running totals of a data
+         * set.
+         */
+        SeriesValues(Overlay overlay, CovidDataset dataset, LocalDate startDate, LocalDate endDate) {
+            CumulativeAggregates aggregates = dataset.getAggregates();
+            int startDay = (int) startDate.toEpochDay();
+            int length = Math.max(0, (int) endDate.toEpochDay() - startDay + 1);
+            if (overlay.metric instanceof DerivedMetric) {
+                double[] daily = dataset.getRollingAnalytics().getDailyValues((DerivedMetric) overlay.metric,
+                        getBoroughIds(overlay, dataset, aggregates), startDay, startDay + length - 1);
+                // Keep the days with a defined value.
+                int[] days = new int[length];
+                int dayCount = 0;
+                for (int i = 0; i < length; i++) {
+                    if (!Double.isNaN(daily[i])) {
+                        daily[dayCount] = daily[i];
+                        days[dayCount++] = startDay + i;
+                    }
+                }
+                epochDays = Arrays.copyOf(days, dayCount);
+                values = Arrays.copyOf(daily, dayCount);
+                return;
+            }
+
+            CovidMetric metric = (CovidMetric) overlay.metric;
+            long[] sums = new long[length];
+            int[] counts = new int[length];
+            if (overlay.boroughs.isEmpty()) {
+                aggregates.addDailyValues(metric, -1, startDay, startDay + length - 1, sums, counts);
+            } else {
+                for (int id : getBoroughIds(overlay, dataset, aggregates)) {
+                    aggregates.addDailyValues(metric, id, startDay, startDay + length - 1, sums, counts);
+                }
+            }
+
+            // Keep the days with records.
+            double[] daily = new double[length];
+            int dayCount = 0;
+            for (int i = 0; i < length; i++) {
+                if (counts[i] > 0) {
+                    daily[dayCount] = metric.isMobility() ? (double) sums[i] / counts[i] : sums[i];
+                    counts[dayCount++] = startDay + i;
+                }
+            }
+            epochDays = Arrays.copyOf(counts, dayCount);
+            values = Arrays.copyOf(daily, dayCount);
+        }
+
+        /**
+         * Looks up the ids of the boroughs of a series, leaving out those the
+         * running totals do not cover.
+         */
+        private static int[] getBoroughIds(Overlay overlay, CovidDataset dataset, CumulativeAggregates aggregates) {
+            BoroughIndex boroughIndex = dataset.getBoroughIndex();
+            int[] ids = new int[overlay.boroughs.size()];
+            int idCount = 0;
+            for (String borough : overlay.boroughs) {
+                int id = boroughIndex.getBoroughId(borough);
+                if (id >= 0 && id < aggregates.getBoroughCount()) {
+                    ids[idCount++] = id;
+                }
+            }
+            return Arrays.copyOf(ids, idCount);
+        }
+
+        private long estimateSize() {
+            return 12L * epochDays.length + 64;
+        }
     }
 
     /**
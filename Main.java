@@ -32,9 +32,8 @@ public class Main extends Application {
         loader.setLocation(url);
         Pane root = loader.load();
 
-        AppController controller = loader.getController();
-
-        controller.initialize();
+        // The FXMLLoader has already called the controller's initialize method,
+        // which starts loading the data in the background.
         // Set up the scene and stage
         Scene scene = new Scene(root);
         stage.setTitle("Covid-19 Statistic");
@@ -1,8 +1,7 @@
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 
@@ -19,30 +18,33 @@ public class MapPanelAnalyzer {
     private LocalDate startDate;
     private LocalDate endDate;
 
-    private ArrayList<CovidData> covidDataList = new ArrayList<CovidData>(); // List holding all loaded COVID data
-                                                                             // entries.
-    private ArrayList<CovidData> filteredCovidDataList = new ArrayList<>(); // Filtered list based on the selected date
-                                                                            // range.
-    private CovidDataLoader loader = new CovidDataLoader(); // Loader to fetch COVID data.
+    private CovidDataset dataset; // Shared data set holding all loaded COVID data entries.
 
     /**
-     * Constructs a MapPanelAnalyzer with specified start and end dates for data
-     * analysis.
+     * Constructs a MapPanelAnalyzer over the shared data set with specified start
+     * and end dates for data analysis.
      * 
+     * @param dataset   The loaded COVID data set to analyze.
      * @param startDate The beginning of the date range for analysis.
      * @param endDate   The end of the date range for analysis.
      */
-    public MapPanelAnalyzer(LocalDate startDate, LocalDate endDate) {
+    public MapPanelAnalyzer(CovidDataset dataset, LocalDate startDate, LocalDate endDate) {
+        this.dataset = dataset;
         this.startDate = startDate;
         this.endDate = endDate;
-        // Load initial COVID data and apply initial filtering.
-        covidDataList = loader.load();
-        filterDataByDateRange();
     }
 
     /**
-     * Updates the date range for data analysis and re-filters the COVID data
-     * accordingly.
+     * Returns the data set analyzed.
+     * 
+     * @return The shared COVID data set.
+     */
+    public CovidDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Updates the date range for data analysis.
      * 
      * @param newStartDate The new start date for the analysis.
      * @param newEndDate   The new end date for the analysis.
@@ -50,43 +52,180 @@ public class MapPanelAnalyzer {
     public void updateDataRange(LocalDate newStartDate, LocalDate newEndDate) {
         this.startDate = newStartDate;
         this.endDate = newEndDate;
-        // Re-filter the data according to the new date range.
-        filterDataByDateRange();
-    }
-
-    /**
-     * Filters the loaded COVID data according to the current date range. The
-     * filtering is based on whether the data's date falls within the start and end
-     * dates, inclusive.
-     */
-    private void filterDataByDateRange() {
-        filteredCovidDataList = covidDataList.stream()
-                .filter(data -> !data.getDate().isBefore(startDate) && !data.getDate().isAfter(endDate))
-                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     /**
      * Retrieves detailed COVID data for a specific borough within the currently
      * selected date range. This includes information such as dates, Google mobility
-     * data, new cases, total cases, and new deaths.
+     * data, new cases, total cases, and new deaths. The records are looked up in
+     * the data set's borough index, so only the borough's own rows are visited.
      * 
-     * @param boroughName The name of the borough for which data is requested.
-     * @return A list of CovidData entries for the specified borough.
+     * @param boroughName The name of the borough for which data is requested,
+     *                    ignoring case and with underscores read as spaces.
+     * @return A list of CovidData entries for the specified borough, in date
+     *         order.
      */
     public List<CovidData> getCovidDataForBorough(String boroughName) {
-        return filteredCovidDataList.stream().filter(data -> data.getBorough().equalsIgnoreCase(boroughName))
-                .collect(Collectors.toList());
+        return dataset.getBoroughIndex().getRecords(boroughName, startDate, endDate);
     }
 
     /**
-     * Computes the total number of new deaths by borough within the selected date
-     * range.
+     * Computes the total number of new deaths by borough within the given date
+     * range. The result only depends on the arguments, not on the range set
+     * through updateDataRange, so it is safe to call from a background thread.
      * 
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
      * @return A map where each key is a borough name and each value is the total
-     *         number of new deaths in that borough within the selected date range.
+     *         number of new deaths in that borough within the date range.
      */
     public Map<String, Integer> updateDeathCountsByBorough(LocalDate startDate, LocalDate endDate) {
-        return filteredCovidDataList.stream()
-                .collect(Collectors.groupingBy(CovidData::getBorough, Collectors.summingInt(CovidData::getNewDeaths)));
+        return getValuesByBorough(CovidMetric.NEW_DEATHS, startDate, endDate);
+    }
+
+    /**
+     * Computes the value of a metric for every borough within the given date
+     * range, as shown on the map: the sum of a daily metric such as new cases, the
+     * latest value of a cumulative metric such as total cases, or the average of a
+     * mobility metric. Boroughs without records in the range are left out. Like
+     * updateDeathCountsByBorough, this does not depend on the analyzer's range
+     * and may be called concurrently.
+     * 
+     * @param metric    The metric to compute.
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return A map where each key is a borough name and each value is the
+     *         metric's value in that borough within the date range.
+     */
+    public Map<String, Integer> getValuesByBorough(CovidMetric metric, LocalDate startDate, LocalDate endDate) {
+        CovidDataStore store = dataset.getStore();
+        long[] values = new long[store.getBoroughCount()];
+        int[] counts = new int[store.getBoroughCount()];
+        fillValuesByBorough(metric, (int) startDate.toEpochDay(), (int) endDate.toEpochDay(), values, counts);
+
+        Map<String, Integer> valuesByBorough = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                valuesByBorough.put(store.getBoroughName(id), (int) values[id]);
+            }
+        }
+        return valuesByBorough;
+    }
+
+    /**
+     * Computes the value of a metric for every borough within a range of epoch
+     * days, as getValuesByBorough does, writing the values and the number of
+     * records behind them into arrays indexed by the borough ids of the data
+     * set's store. Daily metrics are read straight from the running totals, and
+     * cumulative metrics from the latest row of each borough in the borough
+     * index, so this allocates nothing.
+     * 
+     * @param metric   The metric to compute.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @param values   Receives the value of every borough.
+     * @param counts   Receives the number of records of every borough; a borough
+     *                 with 0 records has no value.
+     */
+    public void fillValuesByBorough(CovidMetric metric, int startDay, int endDay, long[] values, int[] counts) {
+        CumulativeAggregates aggregates = dataset.getAggregates();
+        aggregates.countByBorough(startDay, endDay, counts);
+        if (metric.isCumulative()) {
+            // The latest value reported within the range, read from its row.
+            BoroughIndex boroughIndex = dataset.getBoroughIndex();
+            CovidDataStore store = boroughIndex.getStore();
+            for (int id = 0; id < counts.length; id++) {
+                int row = counts[id] > 0 ? boroughIndex.getLatestRow(id, startDay, endDay) : -1;
+                values[id] = row < 0 ? 0 : store.getValue(metric, row);
+            }
+            return;
+        }
+        aggregates.sumByBorough(metric, startDay, endDay, values);
+        if (metric.isMobility()) {
+            for (int id = 0; id < counts.length; id++) {
+                values[id] = counts[id] == 0 ? 0 : Math.round((double) values[id] / counts[id]);
+            }
+        }
+    }
+
+    /**
+     * Computes the value of a derived metric, such as the 7-day average of new
+     * cases, for every borough on the last day of a range of epoch days, or on
+     * the last day of the data if the range ends later. The values are rounded
+     * to whole numbers for colouring.
+     * 
+     * @param metric   The derived metric to compute.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @param values   Receives the value of every borough.
+     * @param counts   Receives 1 for every borough whose value is defined, and 0
+     *                 for the others.
+     */
+    public void fillValuesByBorough(DerivedMetric metric, int startDay, int endDay, long[] values, int[] counts) {
+        RollingWindowAnalytics analytics = dataset.getRollingAnalytics();
+        int day = Math.min(endDay, analytics.getLastDay());
+        for (int id = 0; id < counts.length; id++) {
+            double value = day < startDay ? Double.NaN : analytics.getValue(metric, id, day);
+            counts[id] = Double.isNaN(value) ? 0 : 1;
+            values[id] = Double.isNaN(value) ? 0 : Math.round(value);
+        }
+    }
+
+    /**
+     * Returns the colour scale of a metric's per-borough values within a range
+     * of epoch days. Scales are kept in the data set's query cache per metric,
+     * scale type and range, so showing a range again costs a single lookup; the
+     * cache is cleared when rows are appended to the data set. This may be called
+     * concurrently.
+     * 
+     * @param metric   The metric shown on the map.
+     * @param type     The kind of scale.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The colour scale of the values.
+     */
+    public ColorScale getColorScale(CovidMetric metric, ColorScale.Type type, int startDay, int endDay) {
+        return getColorScale((Enum<?>) metric, type, startDay, endDay);
+    }
+
+    /**
+     * Returns the colour scale of a derived metric's per-borough values on the
+     * last day of a range of epoch days, cached as for the other metrics.
+     * 
+     * @param metric   The derived metric shown on the map.
+     * @param type     The kind of scale.
+     * @param startDay The first epoch day of the range.
+     * @param endDay   The last epoch day of the range.
+     * @return The colour scale of the values.
+     */
+    public ColorScale getColorScale(DerivedMetric metric, ColorScale.Type type, int startDay, int endDay) {
+        return getColorScale((Enum<?>) metric, type, startDay, endDay);
+    }
+
+    /**
+     * Returns the colour scale of a CovidMetric or a DerivedMetric, from the data
+     * set's query cache.
+     */
+    private ColorScale getColorScale(Enum<?> metric, ColorScale.Type type, int startDay, int endDay) {
+        return dataset.getQueryCache().get(QueryCache.Kind.COLOR_SCALE, List.of(metric, type),
+                LocalDate.ofEpochDay(startDay), LocalDate.ofEpochDay(endDay),
+                () -> computeColorScale(metric, type, startDay, endDay),
+                scale -> 8L * ColorScale.BUCKET_COUNT + 64);
+    }
+
+    /**
+     * Computes the colour scale of a metric's per-borough values within a range
+     * of epoch days.
+     */
+    private ColorScale computeColorScale(Enum<?> metric, ColorScale.Type type, int startDay, int endDay) {
+        CovidDataStore store = dataset.getStore();
+        long[] values = new long[store.getBoroughCount()];
+        int[] counts = new int[store.getBoroughCount()];
+        if (metric instanceof DerivedMetric) {
+            fillValuesByBorough((DerivedMetric) metric, startDay, endDay, values, counts);
+        } else {
+            fillValuesByBorough((CovidMetric) metric, startDay, endDay, values, counts);
+        }
+        return ColorScale.of(type, values, counts);
     }
 }
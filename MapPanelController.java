@@ -1,14 +1,25 @@
 import java.io.IOException;
+import java.net.URL;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
+import javafx.animation.AnimationTimer;
+import javafx.css.PseudoClass;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -20,6 +31,12 @@ import javafx.stage.Stage;
  * rates. Each borough is represented as a button on the UI, which can be
  * interacted with to display detailed COVID data.
  *
+ * Below the map, a time-lapse control plays the whole data set day by day or
+ * week by week, recolouring the boroughs for every step. The colour bucket of
+ * every borough in every frame is computed once when playback starts, so a
+ * frame only looks up its buckets and restyles the buttons whose colour
+ * changes.
+ *
  * 
  * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
  * @version 24.03.2024
@@ -40,8 +57,59 @@ public class MapPanelController {
             CityOfLondonBtn, GreenwichBtn, BexleyBtn, RichmondUponThamesBtn, MertonBtn, LambethBtn, SouthwarkBtn,
             LewishamBtn, KingstonUponThamesBtn, SuttonBtn, CroydonBtn, BromleyBtn;
 
+    @FXML
+    // Legend of the colour buckets, from the smallest values to the largest.
+    private Label label10, label20, label30, label40, label50, labelOver50;
+
     private MapPanelAnalyzer mapPanelAnalyzer; // Instance of MapPanelAnalyzer for data analysis and visualization.
 
+    // The pseudo-class of each colour bucket. MapPanelColours.css gives every
+    // pseudo-class its colour, so switching buckets needs no style parsing.
+    private static final PseudoClass[] BUCKET_PSEUDO_CLASSES = new PseudoClass[ColorScale.BUCKET_COUNT];
+    static {
+        for (int bucket = 0; bucket < BUCKET_PSEUDO_CLASSES.length; bucket++) {
+            BUCKET_PSEUDO_CLASSES[bucket] = PseudoClass.getPseudoClass("bucket-" + bucket);
+        }
+    }
+
+    // The metric shown on the map, a CovidMetric or a DerivedMetric, and the
+    // kind of colour scale, read by computeMapVisualization on a background
+    // thread.
+    private volatile Enum<?> selectedMetric = CovidMetric.NEW_DEATHS;
+    private volatile ColorScale.Type selectedScaleType = ColorScale.Type.QUANTILE;
+
+    // What the map shows: the selected date range, or null for a time-lapse
+    // frame, and the metric and scale the legend was last written for.
+    private LocalDate shownStartDate;
+    private LocalDate shownEndDate;
+    private Enum<?> legendMetric;
+    private ColorScale legendScale;
+
+    // Borough buttons and the bucket each one shows (-1 for none), indexed by the
+    // borough ids of the store they were looked up for.
+    private CovidDataStore registeredStore;
+    private Button[] boroughButtons = new Button[0];
+    private int[] shownBuckets = new int[0];
+
+    // Time-lapse playback.
+    private static final long FRAME_NANOS = 1_000_000_000L / 30; // Time between two steps.
+    private static final DateTimeFormatter PLAYBACK_DATE_FORMAT = DateTimeFormatter.ofPattern("d MMM yyyy");
+    private final AnimationTimer playbackTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            advancePlayback(now);
+        }
+    };
+    private Button playButton;
+    private Slider playbackSlider; // Position of the last day shown, in days from playbackFirstDay.
+    private ChoiceBox<String> playbackStep;
+    private Label playbackLabel;
+    private boolean playing;
+    private long lastFrameTime;
+    private int playbackFirstDay; // Epoch day of the first day of the data set.
+    private String[] playbackDayLabels = new String[0]; // Formatted date of every day of the data set.
+    private PlaybackFrames playbackFrames; // Colour bucket of every borough in every frame, null until played.
+
     /**
      * Sets the MapPanelAnalyzer instance for this controller. This method prepares
      * the visualization of London's map with labeled and colored boroughs based on
@@ -51,6 +119,335 @@ public class MapPanelController {
      */
     public void setMapPanelAnalyzer(MapPanelAnalyzer mapPanelAnalyzer) {
         this.mapPanelAnalyzer = mapPanelAnalyzer;
+        updatePlaybackRange();
+    }
+
+    /**
+     * Adds the time-lapse controls below the map. Called automatically after the
+     * FXML file has been loaded.
+     */
+    public void initialize() {
+        URL colours = getClass().getResource("MapPanelColours.css");
+        if (colours != null) {
+            mapPanel.getStylesheets().add(colours.toExternalForm());
+        } else {
+            System.err.println("Error: MapPanelColours.css was not found");
+        }
+
+        playButton = new Button("Play");
+        playButton.setOnAction(event -> togglePlayback());
+        playbackStep = new ChoiceBox<>();
+        playbackStep.getItems().addAll("Day by day", "Week by week");
+        playbackStep.getSelectionModel().selectFirst();
+        playbackStep.setOnAction(event -> renderPlaybackFrame());
+        playbackSlider = new Slider(0, 0, 0);
+        playbackSlider.setBlockIncrement(1);
+        HBox.setHgrow(playbackSlider, Priority.ALWAYS);
+        // An invalidation listener does not box the new value, so frames allocate nothing.
+        playbackSlider.valueProperty().addListener(observable -> renderPlaybackFrame());
+        playbackLabel = new Label();
+        playbackLabel.setMinWidth(90);
+
+        ChoiceBox<Enum<?>> metricChoice = new ChoiceBox<>();
+        metricChoice.getItems().addAll(CovidMetric.VALUES);
+        for (DerivedMetric metric : DerivedMetric.VALUES) {
+            // Estimates of R round to too few whole numbers to colour the map by.
+            if (metric != DerivedMetric.REPRODUCTION_NUMBER) {
+                metricChoice.getItems().add(metric);
+            }
+        }
+        metricChoice.setValue(selectedMetric);
+        metricChoice.setOnAction(event -> {
+            selectedMetric = metricChoice.getValue();
+            refreshMap();
+        });
+        ChoiceBox<ColorScale.Type> scaleChoice = new ChoiceBox<>();
+        scaleChoice.getItems().addAll(ColorScale.Type.values());
+        scaleChoice.setValue(selectedScaleType);
+        scaleChoice.setOnAction(event -> {
+            selectedScaleType = scaleChoice.getValue();
+            refreshMap();
+        });
+
+        HBox playbackControls = new HBox(8, metricChoice, scaleChoice, playButton, playbackStep, playbackSlider,
+                playbackLabel);
+        playbackControls.setAlignment(Pos.CENTER_LEFT);
+        playbackControls.setPadding(new Insets(8, 0, 0, 0));
+        playbackControls.setPrefWidth(760);
+        playbackControls.setDisable(true); // Enabled once there is data to play.
+        mapPanelMain.getChildren().add(playbackControls);
+    }
+
+    /**
+     * Fits the time-lapse slider to the dates of the data set, which grow when
+     * rows are appended, and formats the label of every day once.
+     */
+    private void updatePlaybackRange() {
+        CovidDataStore store = mapPanelAnalyzer.getDataset().getStore();
+        if (store.size() == 0) {
+            return;
+        }
+        playbackFirstDay = store.getEpochDay(0);
+        int dayCount = store.getEpochDay(store.size() - 1) - playbackFirstDay + 1;
+        if (dayCount != playbackDayLabels.length) {
+            playbackDayLabels = new String[dayCount];
+            for (int d = 0; d < dayCount; d++) {
+                playbackDayLabels[d] = LocalDate.ofEpochDay(playbackFirstDay + d).format(PLAYBACK_DATE_FORMAT);
+            }
+        }
+        playbackSlider.setMax(dayCount - 1);
+        playbackSlider.getParent().setDisable(false);
+    }
+
+    /**
+     * Starts or pauses the time-lapse. Playing from the last day starts again at
+     * the first one.
+     */
+    private void togglePlayback() {
+        if (playing) {
+            stopPlayback();
+            return;
+        }
+        if (playbackSlider.getValue() >= playbackSlider.getMax()) {
+            playbackSlider.setValue(0);
+        }
+        playing = true;
+        lastFrameTime = 0;
+        playButton.setText("Pause");
+        renderPlaybackFrame();
+        playbackTimer.start();
+    }
+
+    /**
+     * Pauses the time-lapse, leaving the current frame on the map.
+     */
+    private void stopPlayback() {
+        playing = false;
+        playbackTimer.stop();
+        playButton.setText("Play");
+    }
+
+    /**
+     * Moves the time-lapse on by one step if a frame's time has passed.
+     * 
+     * @param now The time stamp of the current pulse, in nanoseconds.
+     */
+    private void advancePlayback(long now) {
+        if (now - lastFrameTime < FRAME_NANOS) {
+            return;
+        }
+        lastFrameTime = now;
+        double next = playbackSlider.getValue() + getPlaybackStepDays();
+        if (next > playbackSlider.getMax()) {
+            stopPlayback();
+            return;
+        }
+        playbackSlider.setValue(next); // Renders the frame through the slider's listener.
+    }
+
+    /**
+     * Returns the number of days the time-lapse moves on with every step, which is
+     * also the number of days each frame covers.
+     */
+    private int getPlaybackStepDays() {
+        return playbackStep.getSelectionModel().getSelectedIndex() == 1 ? 7 : 1;
+    }
+
+    /**
+     * Colours the boroughs by the selected metric in the window ending at the day
+     * the slider is at. The buckets of every frame are computed before the first
+     * frame is shown, so a frame only looks them up.
+     */
+    private void renderPlaybackFrame() {
+        if (mapPanelAnalyzer == null || playbackDayLabels.length == 0) {
+            return;
+        }
+        int dayOffset = Math.min((int) Math.round(playbackSlider.getValue()), playbackDayLabels.length - 1);
+        CovidDataStore store = mapPanelAnalyzer.getDataset().getStore();
+        registerBoroughButtons(store);
+        PlaybackFrames frames = getPlaybackFrames(store);
+        byte[] buckets = frames.buckets[dayOffset];
+        int boroughCount = Math.min(boroughButtons.length, buckets.length);
+        for (int id = 0; id < boroughCount; id++) {
+            showBucket(id, buckets[id]);
+        }
+        showLegend(frames.metric, frames.scale);
+        shownStartDate = null;
+        playbackLabel.setText(playbackDayLabels[dayOffset]);
+    }
+
+    /**
+     * Returns the frames of the time-lapse for the selected metric, scale and
+     * step, computing them again if any of these or the store has changed.
+     */
+    private PlaybackFrames getPlaybackFrames(CovidDataStore store) {
+        PlaybackFrames frames = playbackFrames;
+        if (frames == null || frames.store != store || frames.metric != selectedMetric
+                || frames.scaleType != selectedScaleType || frames.stepDays != getPlaybackStepDays()
+                || frames.buckets.length != playbackDayLabels.length) {
+            frames = computePlaybackFrames(store, selectedMetric, selectedScaleType, getPlaybackStepDays());
+            playbackFrames = frames;
+        }
+        return frames;
+    }
+
+    /**
+     * Computes the colour bucket of every borough on every day of the
+     * time-lapse. One scale is computed from the values of all frames, so a
+     * colour stands for the same values throughout the time-lapse and the legend
+     * stays the same while it plays.
+     */
+    private PlaybackFrames computePlaybackFrames(CovidDataStore store, Enum<?> metric, ColorScale.Type scaleType,
+            int stepDays) {
+        int boroughCount = store.getBoroughCount();
+        int frameCount = playbackDayLabels.length;
+        long[] values = new long[frameCount * boroughCount];
+        int[] counts = new int[frameCount * boroughCount];
+        long[] frameValues = new long[boroughCount];
+        int[] frameCounts = new int[boroughCount];
+        for (int frame = 0; frame < frameCount; frame++) {
+            int endDay = playbackFirstDay + frame;
+            int startDay = Math.max(playbackFirstDay, endDay - stepDays + 1);
+            fillValuesByBorough(metric, startDay, endDay, frameValues, frameCounts);
+            System.arraycopy(frameValues, 0, values, frame * boroughCount, boroughCount);
+            System.arraycopy(frameCounts, 0, counts, frame * boroughCount, boroughCount);
+        }
+
+        ColorScale scale = ColorScale.of(scaleType, values, counts);
+        byte[][] buckets = new byte[frameCount][boroughCount];
+        for (int frame = 0; frame < frameCount; frame++) {
+            for (int id = 0; id < boroughCount; id++) {
+                int i = frame * boroughCount + id;
+                buckets[frame][id] = (byte) (counts[i] > 0 ? scale.bucketOf(values[i]) : -1);
+            }
+        }
+        return new PlaybackFrames(store, metric, scaleType, stepDays, scale, buckets);
+    }
+
+    /**
+     * Computes the value of a CovidMetric or a DerivedMetric for every borough.
+     */
+    private void fillValuesByBorough(Enum<?> metric, int startDay, int endDay, long[] values, int[] counts) {
+        if (metric instanceof DerivedMetric) {
+            mapPanelAnalyzer.fillValuesByBorough((DerivedMetric) metric, startDay, endDay, values, counts);
+        } else {
+            mapPanelAnalyzer.fillValuesByBorough((CovidMetric) metric, startDay, endDay, values, counts);
+        }
+    }
+
+    /**
+     * Returns the colour scale of a CovidMetric or a DerivedMetric.
+     */
+    private ColorScale getColorScale(Enum<?> metric, ColorScale.Type scaleType, int startDay, int endDay) {
+        if (metric instanceof DerivedMetric) {
+            return mapPanelAnalyzer.getColorScale((DerivedMetric) metric, scaleType, startDay, endDay);
+        }
+        return mapPanelAnalyzer.getColorScale((CovidMetric) metric, scaleType, startDay, endDay);
+    }
+
+    /**
+     * Shows the map again after the metric or the kind of scale has changed.
+     */
+    private void refreshMap() {
+        if (mapPanelAnalyzer == null) {
+            return;
+        }
+        if (shownStartDate != null) {
+            applyMapVisualization(computeMapVisualization(shownStartDate, shownEndDate));
+        } else {
+            renderPlaybackFrame();
+        }
+    }
+
+    /**
+     * Colours every borough button by the bucket of its value, and updates the
+     * legend if the scale has changed. Boroughs without records are shown
+     * uncoloured.
+     */
+    private void colorBoroughs(Enum<?> metric, long[] values, int[] counts, ColorScale scale) {
+        int boroughCount = Math.min(boroughButtons.length, values.length);
+        for (int id = 0; id < boroughCount; id++) {
+            showBucket(id, counts[id] > 0 ? scale.bucketOf(values[id]) : -1);
+        }
+        showLegend(metric, scale);
+    }
+
+    /**
+     * Updates the legend unless it already shows the scale of the metric.
+     */
+    private void showLegend(Enum<?> metric, ColorScale scale) {
+        if (metric != legendMetric || scale != legendScale) {
+            updateLegend(scale);
+            legendMetric = metric;
+            legendScale = scale;
+        }
+    }
+
+    /**
+     * Writes the value range of every colour bucket into the legend.
+     */
+    private void updateLegend(ColorScale scale) {
+        Label[] legendLabels = { label10, label20, label30, label40, label50, labelOver50 };
+        int last = ColorScale.BUCKET_COUNT - 1;
+        for (int bucket = 0; bucket <= last; bucket++) {
+            if (legendLabels[bucket] == null) {
+                continue;
+            }
+            long from = scale.getLowerBound(bucket);
+            String text;
+            if (bucket == 0) {
+                text = String.format("< %,d", scale.getLowerBound(1));
+            } else if (bucket == last) {
+                text = String.format(">= %,d", from);
+            } else {
+                long to = scale.getLowerBound(bucket + 1) - 1;
+                text = from > to ? "-" : from == to ? String.format("%,d", from) : String.format("%,d to %,d", from, to);
+            }
+            legendLabels[bucket].setText(text);
+        }
+    }
+
+    /**
+     * Looks up the button of every borough of a store once, so that colouring the
+     * map does not search the scene graph. Does nothing if the buttons have been
+     * looked up for this store already.
+     */
+    private void registerBoroughButtons(CovidDataStore store) {
+        if (store == registeredStore) {
+            return;
+        }
+        // Borough ids may differ between stores, so start again from plain buttons.
+        for (int id = 0; id < boroughButtons.length; id++) {
+            if (boroughButtons[id] != null && shownBuckets[id] >= 0) {
+                boroughButtons[id].pseudoClassStateChanged(BUCKET_PSEUDO_CLASSES[shownBuckets[id]], false);
+            }
+        }
+        int boroughCount = store.getBoroughCount();
+        boroughButtons = new Button[boroughCount];
+        shownBuckets = new int[boroughCount];
+        Arrays.fill(shownBuckets, -1);
+        for (int id = 0; id < boroughCount; id++) {
+            boroughButtons[id] = findButtonForBorough(store.getBoroughName(id));
+        }
+        registeredStore = store;
+    }
+
+    /**
+     * Shows a colour bucket on a borough's button, or no colour for bucket -1,
+     * unless it already shows it.
+     */
+    private void showBucket(int boroughId, int bucket) {
+        Button boroughButton = boroughButtons[boroughId];
+        int shownBucket = shownBuckets[boroughId];
+        if (boroughButton != null && shownBucket != bucket) {
+            if (shownBucket >= 0) {
+                boroughButton.pseudoClassStateChanged(BUCKET_PSEUDO_CLASSES[shownBucket], false);
+            }
+            if (bucket >= 0) {
+                boroughButton.pseudoClassStateChanged(BUCKET_PSEUDO_CLASSES[bucket], true);
+            }
+            shownBuckets[boroughId] = bucket;
+        }
     }
 
     /**
@@ -60,7 +457,7 @@ public class MapPanelController {
      * @return The button corresponding to the borough, or null if not found.
      */
     private Button findButtonForBorough(String boroughName) {
-        String buttonId = boroughName.replaceAll("\\s+", "_") + "Btn";
+        String buttonId = boroughName.replace(' ', '_') + "Btn";
         return (Button) mapPanel.lookup("#" + buttonId);
     }
 
@@ -72,44 +469,102 @@ public class MapPanelController {
      * @param endDate   The end date of the range.
      */
     public void updateMapVisualization(LocalDate startDate, LocalDate endDate) {
-        Map<String, Integer> deathCountsByBorough = mapPanelAnalyzer.updateDeathCountsByBorough(startDate, endDate);
-        updateBoroughButtonStyles(deathCountsByBorough);
+        applyMapVisualization(computeMapVisualization(startDate, endDate));
     }
 
     /**
-     * Updates the styles of borough buttons based on death counts.
+     * Computes the values and colour scale of the selected metric for a date
+     * range without touching the UI, so it can be called from a background
+     * thread. Results are kept in the data set's query cache, so a recently shown
+     * range is not computed again.
      * 
-     * @param deathCountsByBorough A map of borough names to their death counts.
-     */
-    private void updateBoroughButtonStyles(Map<String, Integer> deathCountsByBorough) {
-        deathCountsByBorough.forEach((boroughName, deathCount) -> {
-            Button boroughButton = findButtonForBorough(boroughName);
-            if (boroughButton != null) {
-                String color = getColorForDeathCount(deathCount);
-                boroughButton.setStyle("-fx-background-color: " + color + ";");
-            }
-        });
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @return The colouring of the map, to be passed to applyMapVisualization.
+     */
+    public MapColoring computeMapVisualization(LocalDate startDate, LocalDate endDate) {
+        Enum<?> metric = selectedMetric;
+        ColorScale.Type scaleType = selectedScaleType;
+        return mapPanelAnalyzer.getDataset().getQueryCache().get(QueryCache.Kind.MAP, List.of(metric, scaleType),
+                startDate, endDate, () -> computeMapColoring(metric, scaleType, startDate, endDate),
+                coloring -> 12L * coloring.values.length + 256);
     }
 
     /**
-     * Determines the color for a button based on the death count.
+     * Computes the values and colour scale of a metric for a date range.
+     */
+    private MapColoring computeMapColoring(Enum<?> metric, ColorScale.Type scaleType, LocalDate startDate,
+            LocalDate endDate) {
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        CovidDataStore store = mapPanelAnalyzer.getDataset().getStore();
+        long[] values = new long[store.getBoroughCount()];
+        int[] counts = new int[store.getBoroughCount()];
+        fillValuesByBorough(metric, startDay, endDay, values, counts);
+        ColorScale scale = getColorScale(metric, scaleType, startDay, endDay);
+        return new MapColoring(store, metric, startDate, endDate, values, counts, scale);
+    }
+
+    /**
+     * Colours the borough buttons by a computed colouring. Must be called on the
+     * JavaFX Application Thread.
      * 
-     * @param deathCount The death count for the borough.
-     * @return A string representing the color for the button.
-     */
-    private String getColorForDeathCount(int deathCount) {
-        if (deathCount < 10) {
-            return "lightgreen";
-        } else if (deathCount < 20) {
-            return "forestgreen";
-        } else if (deathCount < 30) {
-            return "green";
-        } else if (deathCount < 40) {
-            return "darkgreen";
-        } else if (deathCount < 50) {
-            return "darkolivegreen";
-        } else {
-            return "red";
+     * @param coloring The colouring returned by computeMapVisualization.
+     */
+    public void applyMapVisualization(MapColoring coloring) {
+        stopPlayback(); // The selected range replaces the time-lapse frame.
+        updatePlaybackRange();
+        registerBoroughButtons(coloring.store);
+        colorBoroughs(coloring.metric, coloring.values, coloring.counts, coloring.scale);
+        shownStartDate = coloring.startDate;
+        shownEndDate = coloring.endDate;
+    }
+
+    /**
+     * The values of one metric for every borough within a date range, and the
+     * colour scale they are shown with.
+     */
+    public static class MapColoring {
+        private final CovidDataStore store; // The store whose borough ids index the values.
+        private final Enum<?> metric;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final long[] values;
+        private final int[] counts;
+        private final ColorScale scale;
+
+        private MapColoring(CovidDataStore store, Enum<?> metric, LocalDate startDate, LocalDate endDate,
+                long[] values, int[] counts, ColorScale scale) {
+            this.store = store;
+            this.metric = metric;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.values = values;
+            this.counts = counts;
+            this.scale = scale;
+        }
+    }
+
+    /**
+     * The colour bucket of every borough in every frame of the time-lapse, and
+     * the selection they were computed for.
+     */
+    private static class PlaybackFrames {
+        private final CovidDataStore store;
+        private final Enum<?> metric;
+        private final ColorScale.Type scaleType;
+        private final int stepDays;
+        private final ColorScale scale; // The scale shared by all frames.
+        private final byte[][] buckets; // Bucket per frame and borough id, -1 for no records.
+
+        private PlaybackFrames(CovidDataStore store, Enum<?> metric, ColorScale.Type scaleType, int stepDays,
+                ColorScale scale, byte[][] buckets) {
+            this.store = store;
+            this.metric = metric;
+            this.scaleType = scaleType;
+            this.stepDays = stepDays;
+            this.scale = scale;
+            this.buckets = buckets;
         }
     }
 
@@ -0,0 +1,182 @@
+/**
+ * Order statistics over primitive arrays: the k-th smallest value, percentiles
+ * and the medians found by quickselect in linear expected time, and the ids of
+ * the n largest or smallest values kept in a bounded heap. None of them sort
+ * the whole array.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class OrderStatistics {
+    private OrderStatistics() {
+    }
+
+    /**
+     * Finds the k-th smallest of the first n values of an array. The values are
+     * reordered, so that afterwards every value before index k is no larger and
+     * every value after it is no smaller.
+     *
+     * @param values The values; the first n are reordered.
+     * @param n      The number of values to select from.
+     * @param k      The rank to find, from 0 for the smallest.
+     * @return The k-th smallest value.
+     */
+    public static long select(long[] values, int n, int k) {
+        if (k < 0 || k >= n) {
+            throw new IndexOutOfBoundsException("Rank " + k + " of " + n);
+        }
+        int low = 0;
+        int high = n - 1;
+        while (low < high) {
+            // Median of three as the pivot, so sorted input is not quadratic.
+            int middle = (low + high) >>> 1;
+            long pivot = medianOf(values[low], values[middle], values[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            // values[low..j] <= pivot, values[j+1..i-1] == pivot, values[i..high] >= pivot
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    private static long medianOf(long a, long b, long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Returns the median of the first n values of an array, the mean of the two
+     * middle values if n is even. The values are reordered.
+     *
+     * @param values The values; the first n are reordered.
+     * @param n      The number of values, at least 1.
+     * @return The median.
+     */
+    public static double median(long[] values, int n) {
+        long upper = select(values, n, n / 2);
+        if (n % 2 == 1) {
+            return upper;
+        }
+        // After selecting rank n / 2, the value of rank n / 2 - 1 is the largest before it.
+        long lower = values[0];
+        for (int i = 1; i < n / 2; i++) {
+            lower = Math.max(lower, values[i]);
+        }
+        return (lower + (double) upper) / 2;
+    }
+
+    /**
+     * Returns a percentile of the first n values of an array, by the nearest rank
+     * method: the smallest value that at least the given percentage of values is
+     * no larger than. The values are reordered.
+     *
+     * @param values     The values; the first n are reordered.
+     * @param n          The number of values, at least 1.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value at the percentile.
+     */
+    public static long percentile(long[] values, int n, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * n) - 1;
+        return select(values, n, Math.max(0, Math.min(n - 1, rank)));
+    }
+
+    /**
+     * Returns the ids of the n largest or smallest values, best first. Only the
+     * ids kept so far are held, in a heap whose root is the worst of them, so
+     * each value is compared with the root and the heap is updated only if the
+     * value beats it. Equal values are ranked by the smaller id first.
+     *
+     * @param values  The values, indexed by id.
+     * @param present Which ids have a value, indexed by id; an id with a count of
+     *                0 is left out. May be null to use every id.
+     * @param n       The number of ids to return at most.
+     * @param largest true for the largest values, false for the smallest.
+     * @return The ids of the best values, best first.
+     */
+    public static int[] rank(long[] values, int[] present, int n, boolean largest) {
+        int[] heap = new int[Math.max(0, Math.min(n, values.length))];
+        int size = 0;
+        for (int id = 0; id < values.length; id++) {
+            if (present != null && present[id] == 0) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = id;
+                siftUp(heap, size++, values, largest);
+            } else if (size > 0 && beats(id, heap[0], values, largest)) {
+                heap[0] = id;
+                siftDown(heap, size, values, largest);
+            }
+        }
+
+        // Take the worst from the root until the heap is empty, filling from the back.
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, values, largest);
+        }
+        return ranked;
+    }
+
+    /**
+     * Whether the value of id a ranks before the value of id b.
+     */
+    private static boolean beats(int a, int b, long[] values, boolean largest) {
+        if (values[a] != values[b]) {
+            return largest ? values[a] > values[b] : values[a] < values[b];
+        }
+        return a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, long[] values, boolean largest) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!beats(heap[parent], id, values, largest)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] values, boolean largest) {
+        if (size == 0) {
+            return;
+        }
+        int id = heap[0];
+        int index = 0;
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && beats(heap[child], heap[child + 1], values, largest)) {
+                child++; // the worse of the two children
+            }
+            if (!beats(id, heap[child], values, largest)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}
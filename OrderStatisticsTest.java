@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the OrderStatistics class. It checks the
+ * selected values and rankings against those of a sorted copy.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class OrderStatisticsTest {
+    /**
+     * Tests that every rank selected from values with many duplicates matches
+     * the sorted values, and the median of an even number of values.
+     */
+    @Test
+    void select_matchesSortedValues() {
+        Random random = new Random(7);
+        long[] values = new long[501];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(40);
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int k = 0; k < values.length; k++) {
+            assertEquals(sorted[k], OrderStatistics.select(values.clone(), values.length, k));
+        }
+        assertEquals(sorted[250], OrderStatistics.median(values.clone(), values.length));
+        assertEquals(2.5, OrderStatistics.median(new long[] { 4, 1, 3, 2 }, 4));
+        assertEquals(9, OrderStatistics.percentile(new long[] { 1, 9, 5, 3, 7, 2, 4, 6, 8, 10 }, 10, 90));
+    }
+
+    /**
+     * Tests the highest and lowest ranked ids, including ties and ids without
+     * a value.
+     */
+    @Test
+    void rank_keepsBestValues() {
+        long[] values = { 5, 9, 1, 9, 3, 7, 100 };
+        int[] present = { 1, 1, 1, 1, 1, 1, 0 };
+        assertArrayEquals(new int[] { 1, 3, 5 }, OrderStatistics.rank(values, present, 3, true));
+        assertArrayEquals(new int[] { 2, 4 }, OrderStatistics.rank(values, present, 2, false));
+        assertArrayEquals(new int[] { 6, 1, 3, 5, 0, 4, 2 }, OrderStatistics.rank(values, null, 10, true));
+    }
+}
@@ -0,0 +1,233 @@
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Remembers the results of date range queries, such as the map colouring, a
+ * statistic or the line chart data of a range, so that returning to a recently
+ * shown range does not compute them again. Results are keyed by the kind of
+ * query, a parameter of the query such as the metric, and the date range.
+ *
+ * The cache holds results up to an estimated total size in bytes, evicting the
+ * least recently used results first. It counts hits and misses, and is cleared
+ * by the data set whenever rows are appended. All methods may be called
+ * concurrently.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class QueryCache {
+    /**
+     * The kinds of cached queries.
+     */
+    public enum Kind {
+        /** The values and colour scale of the map. */
+        MAP,
+        /** The colour scale of one metric and kind of scale on the map. */
+        COLOR_SCALE,
+        /** The text of one statistics pane. */
+        STATISTIC,
+        /** The data of the line chart. */
+        LINE_CHART
+    }
+
+    private final long capacity; // Largest estimated size of all results held, in bytes.
+    private final LinkedHashMap<Key, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long size; // Estimated size of all results held, in bytes.
+    private long generation; // Number of times the cache has been cleared.
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The largest estimated size of all results held, in bytes.
+     */
+    public QueryCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the cached result of a query, computing and caching it if it is not
+     * cached. The computation runs on the calling thread without holding the
+     * cache's lock; a result computed while the cache is being cleared is
+     * returned but not cached, as it may be computed from the data before the
+     * change.
+     *
+     * @param kind      The kind of query.
+     * @param parameter What distinguishes queries of the same kind and range, or
+     *                  null.
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @param compute   Computes the result if it is not cached.
+     * @param sizeOf    Estimates the size of a result in bytes.
+     * @param <T>       The type of the result.
+     * @return The result of the query.
+     */
+    public <T> T get(Kind kind, Object parameter, LocalDate startDate, LocalDate endDate, Supplier<T> compute,
+            ToLongFunction<T> sizeOf) {
+        Key key = new Key(kind, parameter, startDate, endDate);
+        long computedGeneration;
+        synchronized (this) {
+            CachedResult cached = results.get(key);
+            if (cached != null) {
+                hits++;
+                return cast(cached.value);
+            }
+            misses++;
+            computedGeneration = generation;
+        }
+
+        T value = compute.get();
+        long valueSize = sizeOf.applyAsLong(value) + Key.SIZE;
+        synchronized (this) {
+            if (computedGeneration == generation && valueSize <= capacity) {
+                CachedResult replaced = results.put(key, new CachedResult(value, valueSize));
+                size += valueSize - (replaced == null ? 0 : replaced.size);
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached result of a query without computing it. A result found
+     * counts as a hit; a result not found is not counted, as the caller is
+     * expected to compute it with get.
+     *
+     * @param kind      The kind of query.
+     * @param parameter What distinguishes queries of the same kind and range, or
+     *                  null.
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     * @param <T>       The type of the result.
+     * @return The cached result, or null if it is not cached.
+     */
+    public synchronized <T> T getIfPresent(Kind kind, Object parameter, LocalDate startDate, LocalDate endDate) {
+        CachedResult cached = results.get(new Key(kind, parameter, startDate, endDate));
+        if (cached == null) {
+            return null;
+        }
+        hits++;
+        return cast(cached.value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    /**
+     * Removes the least recently used results until the cache is within its
+     * capacity.
+     */
+    private void evict() {
+        Iterator<CachedResult> leastRecentlyUsed = results.values().iterator();
+        while (size > capacity && leastRecentlyUsed.hasNext()) {
+            size -= leastRecentlyUsed.next().size;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * Removes every result. Results still being computed when this is called
+     * will not be cached.
+     */
+    public synchronized void clear() {
+        results.clear();
+        size = 0;
+        generation++;
+    }
+
+    /**
+     * Returns how many lookups found a cached result.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns how many lookups had to compute their result.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results held.
+     *
+     * @return The number of cached results.
+     */
+    public synchronized int getEntryCount() {
+        return results.size();
+    }
+
+    /**
+     * Returns the estimated size of all results held.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache[" + results.size() + " results, " + size + " of " + capacity + " bytes, " + hits
+                + " hits, " + misses + " misses]";
+    }
+
+    /**
+     * A cached result and its estimated size.
+     */
+    private static class CachedResult {
+        private final Object value;
+        private final long size;
+
+        CachedResult(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Identifies a query by its kind, parameter and date range.
+     */
+    private static class Key {
+        static final long SIZE = 128; // Estimated size of a key and its map entry, in bytes.
+
+        private final Kind kind;
+        private final Object parameter;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+
+        Key(Kind kind, Object parameter, LocalDate startDate, LocalDate endDate) {
+            this.kind = kind;
+            this.parameter = parameter;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return kind == key.kind && Objects.equals(parameter, key.parameter) && startDate.equals(key.startDate)
+                    && endDate.equals(key.endDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, parameter, startDate, endDate);
+        }
+    }
+}
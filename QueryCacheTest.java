@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the QueryCache class. It checks hits and
+ * misses, eviction of the least recently used results, and clearing.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class QueryCacheTest {
+    private static final LocalDate FIRST_WAVE_START = LocalDate.of(2020, 3, 1);
+    private static final LocalDate FIRST_WAVE_END = LocalDate.of(2020, 6, 30);
+    private static final LocalDate OMICRON_START = LocalDate.of(2021, 12, 1);
+    private static final LocalDate OMICRON_END = LocalDate.of(2022, 2, 28);
+
+    /**
+     * Tests that returning to a range is a hit that does not compute again, and
+     * that the kind and parameter are part of the key.
+     */
+    @Test
+    void get_returnsCachedResult() {
+        QueryCache cache = new QueryCache(1 << 20);
+        assertEquals("a", cache.get(QueryCache.Kind.STATISTIC, 1, FIRST_WAVE_START, FIRST_WAVE_END, () -> "a", s -> 1));
+        assertEquals("a", cache.get(QueryCache.Kind.STATISTIC, 1, FIRST_WAVE_START, FIRST_WAVE_END, () -> "b", s -> 1));
+        assertEquals("c", cache.get(QueryCache.Kind.STATISTIC, 2, FIRST_WAVE_START, FIRST_WAVE_END, () -> "c", s -> 1));
+        assertEquals("d", cache.get(QueryCache.Kind.MAP, 1, FIRST_WAVE_START, FIRST_WAVE_END, () -> "d", s -> 1));
+        assertEquals("a", cache.getIfPresent(QueryCache.Kind.STATISTIC, 1, FIRST_WAVE_START, FIRST_WAVE_END));
+        assertNull(cache.getIfPresent(QueryCache.Kind.STATISTIC, 1, OMICRON_START, OMICRON_END));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getEntryCount());
+    }
+
+    /**
+     * Tests that the least recently used result is evicted once the results no
+     * longer fit, and that a cleared cache computes again.
+     */
+    @Test
+    void get_evictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache(2000);
+        cache.get(QueryCache.Kind.LINE_CHART, null, FIRST_WAVE_START, FIRST_WAVE_END, () -> "first", s -> 800);
+        cache.get(QueryCache.Kind.LINE_CHART, null, OMICRON_START, OMICRON_END, () -> "omicron", s -> 800);
+        cache.getIfPresent(QueryCache.Kind.LINE_CHART, null, FIRST_WAVE_START, FIRST_WAVE_END);
+        cache.get(QueryCache.Kind.LINE_CHART, null, FIRST_WAVE_START, OMICRON_END, () -> "all", s -> 800);
+
+        assertNotNull(cache.getIfPresent(QueryCache.Kind.LINE_CHART, null, FIRST_WAVE_START, FIRST_WAVE_END));
+        assertNull(cache.getIfPresent(QueryCache.Kind.LINE_CHART, null, OMICRON_START, OMICRON_END));
+        assertTrue(cache.getSize() <= 2000);
+
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals("again", cache.get(QueryCache.Kind.LINE_CHART, null, FIRST_WAVE_START, FIRST_WAVE_END,
+                () -> "again", s -> 800));
+    }
+
+    /**
+     * Tests that a result computed while the cache is cleared is not cached.
+     */
+    @Test
+    void get_doesNotCacheResultComputedAcrossClear() {
+        QueryCache cache = new QueryCache(1 << 20);
+        cache.get(QueryCache.Kind.MAP, null, FIRST_WAVE_START, FIRST_WAVE_END, () -> {
+            cache.clear(); // As if rows were appended during the computation.
+            return "stale";
+        }, s -> 1);
+        assertNull(cache.getIfPresent(QueryCache.Kind.MAP, null, FIRST_WAVE_START, FIRST_WAVE_END));
+    }
+}
@@ -0,0 +1,287 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Computes the derived metrics of a store for London and for every borough, on
+ * every day from the first to the last day of the store. A borough's daily new
+ * cases and new deaths are read from the running totals, then passed once
+ * through a sliding window that keeps a running sum, so every series takes time
+ * linear in the number of days whatever the length of the window.
+ *
+ * The series of a borough are computed the first time they are asked for and
+ * kept until the analytics are replaced, which the data set does after rows
+ * have been appended. All methods may be called concurrently.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class RollingWindowAnalytics {
+    public static final int GROWTH_LAG = 7; // Days between the two averages a growth rate compares.
+    public static final double SERIAL_INTERVAL = 5; // Mean days from one infection to the next, for estimating R.
+
+    private final CovidDataStore store;
+    private final CumulativeAggregates aggregates;
+    private final int firstDay; // Epoch day of the first value of every series.
+    private final int dayCount; // Number of days of every series.
+
+    /*
+     * The series of every derived metric, indexed by metric ordinal then day, per
+     * borough id; the London-wide series are at the end. Null until computed.
+     */
+    private final AtomicReferenceArray<double[][]> boroughSeries;
+
+    /**
+     * Creates the analytics of a store. No series is computed yet.
+     *
+     * @param store      The records to analyze.
+     * @param aggregates The running totals of the store.
+     */
+    public RollingWindowAnalytics(CovidDataStore store, CumulativeAggregates aggregates) {
+        this.store = store;
+        this.aggregates = aggregates;
+        this.firstDay = store.size() == 0 ? 0 : store.getEpochDay(0);
+        this.dayCount = store.size() == 0 ? 0 : store.getEpochDay(store.size() - 1) - firstDay + 1;
+        this.boroughSeries = new AtomicReferenceArray<>(aggregates.getBoroughCount() + 1);
+    }
+
+    /**
+     * Returns the store the analytics were computed from.
+     *
+     * @return The analyzed store.
+     */
+    public CovidDataStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the last day of the store, the last day with a value.
+     *
+     * @return The last epoch day, or the day before the first if the store is
+     *         empty.
+     */
+    public int getLastDay() {
+        return firstDay + dayCount - 1;
+    }
+
+    /**
+     * Returns the value of a derived metric on a day.
+     *
+     * @param metric    The metric to read.
+     * @param boroughId The id of the borough in the store's borough dictionary,
+     *                  or -1 for London.
+     * @param day       The epoch day.
+     * @return The value, or NaN if it is not defined on that day.
+     */
+    public double getValue(DerivedMetric metric, int boroughId, int day) {
+        if (day < firstDay || day >= firstDay + dayCount) {
+            return Double.NaN;
+        }
+        return getSeries(boroughId)[metric.ordinal()][day - firstDay];
+    }
+
+    /**
+     * Writes the value of a derived metric on a day for every borough.
+     *
+     * @param metric The metric to read.
+     * @param day    The epoch day.
+     * @param values Receives the value of every borough, indexed by borough id;
+     *               NaN where it is not defined.
+     */
+    public void fillValuesByBorough(DerivedMetric metric, int day, double[] values) {
+        int boroughCount = Math.min(values.length, aggregates.getBoroughCount());
+        for (int id = 0; id < boroughCount; id++) {
+            values[id] = getValue(metric, id, day);
+        }
+    }
+
+    /**
+     * Returns the daily values of a derived metric for London, one borough or a
+     * set of boroughs. The series of London and of single boroughs are cached;
+     * for a set of boroughs the metric is computed from the sum of their daily
+     * values.
+     *
+     * @param metric     The metric to read.
+     * @param boroughIds The ids of the boroughs, or none for London.
+     * @param startDay   The first epoch day of the range.
+     * @param endDay     The last epoch day of the range.
+     * @return Entry i holds the value on startDay + i, or NaN where it is not
+     *         defined.
+     */
+    public double[] getDailyValues(DerivedMetric metric, int[] boroughIds, int startDay, int endDay) {
+        double[] series;
+        if (boroughIds.length <= 1) {
+            series = getSeries(boroughIds.length == 0 ? -1 : boroughIds[0])[metric.ordinal()];
+        } else {
+            long[] sums = new long[dayCount];
+            int[] counts = new int[dayCount];
+            for (int id : boroughIds) {
+                aggregates.addDailyValues(metric.getSource(), id, firstDay, getLastDay(), sums, counts);
+            }
+            series = computeSeries(metric, sums, counts, dayCount);
+        }
+
+        double[] values = new double[Math.max(0, endDay - startDay + 1)];
+        Arrays.fill(values, Double.NaN);
+        int from = Math.max(startDay, firstDay);
+        int to = Math.min(endDay, getLastDay());
+        if (from <= to) {
+            System.arraycopy(series, from - firstDay, values, from - startDay, to - from + 1);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the series of every derived metric of a borough, computing them on
+     * first use. Two threads asking at once may both compute them; the series
+     * are equal, so either may be kept.
+     */
+    private double[][] getSeries(int boroughId) {
+        int slot = boroughId < 0 ? boroughSeries.length() - 1 : boroughId;
+        double[][] series = boroughSeries.get(slot);
+        if (series == null) {
+            series = computeBoroughSeries(boroughId);
+            boroughSeries.set(slot, series);
+        }
+        return series;
+    }
+
+    private double[][] computeBoroughSeries(int boroughId) {
+        long[][] sums = new long[CovidMetric.COUNT][];
+        int[][] counts = new int[CovidMetric.COUNT][];
+        double[][] series = new double[DerivedMetric.COUNT][];
+        for (DerivedMetric metric : DerivedMetric.VALUES) {
+            int source = metric.getSource().ordinal();
+            if (sums[source] == null) {
+                sums[source] = new long[dayCount];
+                counts[source] = new int[dayCount];
+                aggregates.addDailyValues(metric.getSource(), boroughId, firstDay, getLastDay(), sums[source],
+                        counts[source]);
+            }
+            series[metric.ordinal()] = computeSeries(metric, sums[source], counts[source], dayCount);
+        }
+        return series;
+    }
+
+    /**
+     * Computes a derived metric from consecutive daily values of its source
+     * metric, in one pass over the days.
+     *
+     * A rolling average is the mean over the days of the window with records,
+     * defined once the window is full and holds at least one such day. A weekly
+     * growth compares the 7-day average with the one GROWTH_LAG days earlier.
+     * The doubling time is defined only while the average grows, and the
+     * reproduction number is estimated from the weekly growth factor g as
+     * g^(SERIAL_INTERVAL / GROWTH_LAG), assuming steady exponential growth.
+     *
+     * @param metric The metric to compute.
+     * @param sums   Entry i holds the sum of the source metric on the i-th day.
+     * @param counts Entry i holds the number of records on the i-th day.
+     * @param length The number of days.
+     * @return The value on every day, or NaN where it is not defined.
+     */
+    public static double[] computeSeries(DerivedMetric metric, long[] sums, int[] counts, int length) {
+        double[] averages = new double[length];
+        SlidingWindow window = new SlidingWindow(metric.getWindow());
+        for (int day = 0; day < length; day++) {
+            window.add(sums[day], counts[day] > 0);
+            averages[day] = window.isFull() ? window.getAverage() : Double.NaN;
+        }
+        if (metric.isAverage()) {
+            return averages;
+        }
+
+        double[] values = new double[length];
+        for (int day = 0; day < length; day++) {
+            double factor = day < GROWTH_LAG ? Double.NaN : averages[day] / averages[day - GROWTH_LAG];
+            if (Double.isNaN(factor) || Double.isInfinite(factor)) {
+                values[day] = Double.NaN;
+                continue;
+            }
+            switch (metric) {
+            case NEW_CASES_DOUBLING_TIME:
+                values[day] = factor > 1 ? GROWTH_LAG * Math.log(2) / Math.log(factor) : Double.NaN;
+                break;
+            case REPRODUCTION_NUMBER:
+                values[day] = Math.pow(factor, SERIAL_INTERVAL / GROWTH_LAG);
+                break;
+            default:
+                values[day] = (factor - 1) * 100;
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * A streaming sliding window over daily values. Each day added pushes the
+     * oldest day out once the window is full, and the running sum and number of
+     * days with records are updated by the two days alone, so the average is
+     * known at every step without going over the window again.
+     */
+    public static class SlidingWindow {
+        private final long[] values; // Ring buffer of the days in the window.
+        private final boolean[] reported; // Whether each day of the buffer had records.
+        private int next; // Position in the buffer the next day is written to.
+        private int size; // Number of days in the window.
+        private long sum;
+        private int reportedDays;
+
+        /**
+         * Creates an empty window.
+         *
+         * @param length The number of days the window holds, at least 1.
+         */
+        public SlidingWindow(int length) {
+            values = new long[length];
+            reported = new boolean[length];
+        }
+
+        /**
+         * Adds the next day to the window, pushing out the oldest day if the
+         * window is full.
+         *
+         * @param value      The value of the day, 0 if it has no records.
+         * @param hasRecords Whether the day has records.
+         */
+        public void add(long value, boolean hasRecords) {
+            if (size == values.length) {
+                sum -= values[next];
+                reportedDays -= reported[next] ? 1 : 0;
+            } else {
+                size++;
+            }
+            values[next] = value;
+            reported[next] = hasRecords;
+            sum += value;
+            reportedDays += hasRecords ? 1 : 0;
+            next = (next + 1) % values.length;
+        }
+
+        /**
+         * Returns whether the window holds as many days as its length.
+         *
+         * @return true once length days have been added.
+         */
+        public boolean isFull() {
+            return size == values.length;
+        }
+
+        /**
+         * Returns the sum of the values in the window.
+         *
+         * @return The running sum.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the mean value of the days in the window with records.
+         *
+         * @return The average, or NaN if no day in the window has records.
+         */
+        public double getAverage() {
+            return reportedDays == 0 ? Double.NaN : (double) sum / reportedDays;
+        }
+    }
+}
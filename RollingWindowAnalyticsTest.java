@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the RollingWindowAnalytics class. It checks
+ * the sliding window against averages added up by hand, and the growth rates
+ * of a series whose weekly average doubles.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class RollingWindowAnalyticsTest {
+    private CovidDataStore store;
+    private RollingWindowAnalytics analytics;
+    private int firstDay;
+
+    /**
+     * Sets up two boroughs over three weeks. Barnet has 10 new cases a day in the
+     * first two weeks and 20 in the third, and no record on the last day of the
+     * second week; Bexley has 1 new death every day.
+     */
+    @BeforeEach
+    void setUp() {
+        List<CovidData> covidDataList = new ArrayList<>();
+        for (int day = 0; day < 21; day++) {
+            String date = LocalDate.of(2022, 1, 1).plusDays(day).toString();
+            if (day != 13) {
+                covidDataList.add(new CovidData(date, "Barnet", 0, 0, 0, 0, 0, 0, day < 14 ? 10 : 20, 0, 0, 0));
+            }
+            covidDataList.add(new CovidData(date, "Bexley", 0, 0, 0, 0, 0, 0, 0, 0, 1, 0));
+        }
+        store = CovidDataStore.fromRecords(covidDataList);
+        analytics = new RollingWindowAnalytics(store, new CumulativeAggregates(store));
+        firstDay = store.getEpochDay(0);
+    }
+
+    /**
+     * Tests the running sum and average of the sliding window as days are pushed
+     * out.
+     */
+    @Test
+    void slidingWindow_keepsLastDays() {
+        RollingWindowAnalytics.SlidingWindow window = new RollingWindowAnalytics.SlidingWindow(3);
+        window.add(4, true);
+        window.add(0, false);
+        assertFalse(window.isFull());
+        assertEquals(4.0, window.getAverage());
+        window.add(8, true);
+        assertTrue(window.isFull());
+        assertEquals(12, window.getSum());
+        assertEquals(6.0, window.getAverage());
+        window.add(3, true);
+        window.add(5, true);
+        assertEquals(16, window.getSum());
+        assertEquals(16 / 3.0, window.getAverage(), 1e-9);
+        window.add(0, false);
+        window.add(0, false);
+        window.add(0, false);
+        assertTrue(Double.isNaN(window.getAverage()));
+    }
+
+    /**
+     * Tests rolling averages per borough and for London, including a window with
+     * a day without records.
+     */
+    @Test
+    void rollingAverages() {
+        assertTrue(Double.isNaN(analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, 0, firstDay + 5)));
+        assertEquals(10.0, analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, 0, firstDay + 6));
+        // Days 7 to 13, without day 13.
+        assertEquals(10.0, analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, 0, firstDay + 13));
+        assertEquals(20.0, analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, 0, firstDay + 20));
+        assertEquals((6 * 10 + 7 * 20) / 13.0,
+                analytics.getValue(DerivedMetric.NEW_CASES_14_DAY_AVERAGE, 0, firstDay + 20), 1e-9);
+        assertEquals(1.0, analytics.getValue(DerivedMetric.NEW_DEATHS_7_DAY_AVERAGE, 1, firstDay + 20));
+        assertEquals(1.0, analytics.getValue(DerivedMetric.NEW_DEATHS_14_DAY_AVERAGE, -1, firstDay + 20));
+        assertEquals(20.0, analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, -1, firstDay + 20));
+        assertTrue(Double.isNaN(analytics.getValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, 0, firstDay + 21)));
+    }
+
+    /**
+     * Tests the weekly growth, doubling time and estimated R of a weekly average
+     * that doubles, and of one that stays the same.
+     */
+    @Test
+    void growthRates() {
+        int lastDay = firstDay + 20;
+        assertEquals(100.0, analytics.getValue(DerivedMetric.NEW_CASES_WEEKLY_GROWTH, 0, lastDay), 1e-9);
+        assertEquals(7.0, analytics.getValue(DerivedMetric.NEW_CASES_DOUBLING_TIME, 0, lastDay), 1e-9);
+        assertEquals(Math.pow(2, RollingWindowAnalytics.SERIAL_INTERVAL / 7),
+                analytics.getValue(DerivedMetric.REPRODUCTION_NUMBER, 0, lastDay), 1e-9);
+        assertEquals(0.0, analytics.getValue(DerivedMetric.NEW_DEATHS_WEEKLY_GROWTH, 1, lastDay), 1e-9);
+        assertTrue(Double.isNaN(analytics.getValue(DerivedMetric.NEW_CASES_DOUBLING_TIME, 0, firstDay + 13)));
+        assertTrue(Double.isNaN(analytics.getValue(DerivedMetric.NEW_CASES_WEEKLY_GROWTH, 0, firstDay + 12)));
+    }
+
+    /**
+     * Tests daily values over a range reaching past the data, and for a set of
+     * boroughs.
+     */
+    @Test
+    void dailyValues_forRangeAndBoroughSet() {
+        double[] values = analytics.getDailyValues(DerivedMetric.NEW_CASES_7_DAY_AVERAGE, new int[] { 0 },
+                firstDay + 19, firstDay + 22);
+        assertEquals(4, values.length);
+        assertEquals(20.0, values[1]);
+        assertTrue(Double.isNaN(values[2]));
+
+        double[] combined = analytics.getDailyValues(DerivedMetric.NEW_DEATHS_7_DAY_AVERAGE, new int[] { 0, 1 },
+                firstDay + 20, firstDay + 20);
+        assertEquals(1.0, combined[0]);
+    }
+}
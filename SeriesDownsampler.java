@@ -0,0 +1,164 @@
+/**
+ * Reduces a series of points to the number a chart can actually show, keeping
+ * its shape. The Largest-Triangle-Three-Buckets algorithm always keeps the
+ * first and the last point and divides the others into equal buckets. From
+ * each bucket it keeps the point forming the largest triangle with the point
+ * kept from the previous bucket and the average of the next bucket, so peaks
+ * and troughs survive while flat stretches are thinned out.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class SeriesDownsampler {
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Chooses which points of a series to keep, dividing the points between the
+     * first and the last into buckets of equally many points.
+     *
+     * @param x         The x coordinate of every point, ascending.
+     * @param y         The y coordinate of every point.
+     * @param length    The number of points, the first length entries of x and
+     *                  y.
+     * @param threshold The number of points to keep at most.
+     * @return The indices of the points to keep, ascending. These are all
+     *         indices if the series has no more than threshold points.
+     */
+    public static int[] largestTriangleThreeBuckets(int[] x, long[] y, int length, int threshold) {
+        return largestTriangleThreeBuckets(x, toDoubles(y, length), length, threshold);
+    }
+
+    /**
+     * Chooses which points of a series with fractional values to keep, as
+     * largestTriangleThreeBuckets does for whole values.
+     *
+     * @param x         The x coordinate of every point, ascending.
+     * @param y         The y coordinate of every point.
+     * @param length    The number of points, the first length entries of x and
+     *                  y.
+     * @param threshold The number of points to keep at most.
+     * @return The indices of the points to keep, ascending.
+     */
+    public static int[] largestTriangleThreeBuckets(int[] x, double[] y, int length, int threshold) {
+        if (threshold >= length || threshold < 3) {
+            return allIndices(length);
+        }
+        int bucketCount = threshold - 2;
+        int[] bucketStarts = new int[bucketCount + 1];
+        double bucketSize = (double) (length - 2) / bucketCount;
+        for (int bucket = 0; bucket <= bucketCount; bucket++) {
+            bucketStarts[bucket] = (int) (bucket * bucketSize) + 1;
+        }
+        return select(x, y, length, bucketStarts, bucketCount);
+    }
+
+    /**
+     * Chooses which points of a series to keep, dividing the points between the
+     * first and the last into buckets of equal width along the x axis. The
+     * buckets are aligned to multiples of their width rather than to the first
+     * point, so two overlapping parts of a series of the same width mostly keep
+     * the same points: moving a chart's range then changes only the points near
+     * its ends.
+     *
+     * @param x         The x coordinate of every point, ascending.
+     * @param y         The y coordinate of every point.
+     * @param length    The number of points, the first length entries of x and
+     *                  y.
+     * @param threshold The number of points to keep at most.
+     * @return The indices of the points to keep, ascending. These are all
+     *         indices if the series has no more than threshold points.
+     */
+    public static int[] alignedLargestTriangleThreeBuckets(int[] x, long[] y, int length, int threshold) {
+        return alignedLargestTriangleThreeBuckets(x, toDoubles(y, length), length, threshold);
+    }
+
+    /**
+     * Chooses which points of a series with fractional values to keep, as
+     * alignedLargestTriangleThreeBuckets does for whole values.
+     *
+     * @param x         The x coordinate of every point, ascending.
+     * @param y         The y coordinate of every point.
+     * @param length    The number of points, the first length entries of x and
+     *                  y.
+     * @param threshold The number of points to keep at most.
+     * @return The indices of the points to keep, ascending.
+     */
+    public static int[] alignedLargestTriangleThreeBuckets(int[] x, double[] y, int length, int threshold) {
+        if (threshold >= length || threshold < 4) {
+            return allIndices(length);
+        }
+        // Wide enough for the points between the first and the last to fall into
+        // at most threshold - 2 buckets, wherever the range starts.
+        long span = (long) x[length - 1] - x[0];
+        long width = Math.max(1, (span + threshold - 4) / (threshold - 3));
+        int[] bucketStarts = new int[threshold - 1];
+        int bucketCount = 0;
+        bucketStarts[0] = 1;
+        for (int i = 2; i < length - 1; i++) {
+            if (Math.floorDiv(x[i], width) != Math.floorDiv(x[i - 1], width)) {
+                bucketStarts[++bucketCount] = i;
+            }
+        }
+        bucketStarts[++bucketCount] = length - 1;
+        return select(x, y, length, bucketStarts, bucketCount);
+    }
+
+    private static double[] toDoubles(long[] values, int length) {
+        double[] doubles = new double[length];
+        for (int i = 0; i < length; i++) {
+            doubles[i] = values[i];
+        }
+        return doubles;
+    }
+
+    private static int[] allIndices(int length) {
+        int[] all = new int[length];
+        for (int i = 0; i < length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * Keeps the first and the last point and one point of every bucket. Bucket b
+     * holds the points from bucketStarts[b] up to bucketStarts[b + 1].
+     */
+    private static int[] select(int[] x, double[] y, int length, int[] bucketStarts, int bucketCount) {
+        int[] kept = new int[bucketCount + 2];
+        int keptCount = 0;
+        int previous = 0;
+        kept[keptCount++] = previous;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            // The average of the next bucket, or the last point after the last bucket.
+            int nextStart = bucketStarts[bucket + 1];
+            int nextEnd = bucket + 2 <= bucketCount ? bucketStarts[bucket + 2] : length;
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            // The point of this bucket forming the largest triangle.
+            double previousX = x[previous];
+            double previousY = y[previous];
+            double largestArea = -1;
+            int chosen = bucketStarts[bucket];
+            for (int i = bucketStarts[bucket]; i < nextStart; i++) {
+                double area = Math.abs((previousX - averageX) * (y[i] - previousY)
+                        - (previousX - x[i]) * (averageY - previousY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            kept[keptCount++] = chosen;
+            previous = chosen;
+        }
+        kept[keptCount] = length - 1;
+        return kept;
+    }
+}
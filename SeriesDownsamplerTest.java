@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the SeriesDownsampler class. It checks
+ * that a downsampled series keeps its ends and its peaks.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class SeriesDownsamplerTest {
+    /**
+     * Tests that a long series is reduced to the threshold, keeping the first
+     * and last points and a single spike.
+     */
+    @Test
+    void largestTriangleThreeBuckets_keepsShape() {
+        int length = 1100;
+        int[] x = new int[length];
+        long[] y = new long[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = 18300 + i;
+            y[i] = i % 7; // Weekly noise.
+        }
+        y[777] = 10_000; // A single spike.
+
+        int[] kept = SeriesDownsampler.largestTriangleThreeBuckets(x, y, length, 100);
+        assertEquals(100, kept.length);
+        assertEquals(0, kept[0]);
+        assertEquals(length - 1, kept[kept.length - 1]);
+        boolean spikeKept = false;
+        for (int i = 0; i < kept.length; i++) {
+            if (i > 0) {
+                assertTrue(kept[i] > kept[i - 1], "indices must be ascending");
+            }
+            spikeKept |= kept[i] == 777;
+        }
+        assertTrue(spikeKept, "the spike must be kept");
+    }
+
+    /**
+     * Tests that a series within the threshold is kept whole.
+     */
+    @Test
+    void largestTriangleThreeBuckets_keepsShortSeries() {
+        int[] kept = SeriesDownsampler.largestTriangleThreeBuckets(new int[] { 1, 2, 3 }, new long[] { 5, 1, 5 }, 3,
+                100);
+        assertArrayEquals(new int[] { 0, 1, 2 }, kept);
+    }
+
+    /**
+     * Tests that with buckets aligned to the x axis, moving a range by a week
+     * keeps almost all of the sampled days.
+     */
+    @Test
+    void alignedLargestTriangleThreeBuckets_isStableWhenRangeMoves() {
+        int length = 1100;
+        int[] x = new int[length];
+        long[] y = new long[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = 18300 + i;
+            y[i] = Math.round(1000 * Math.sin(i / 40.0)) + i % 7;
+        }
+        Set<Integer> before = keptDays(x, y, 0, 800);
+        Set<Integer> after = keptDays(x, y, 7, 800);
+        assertTrue(before.size() <= 200 && after.size() <= 200);
+
+        Set<Integer> changed = new HashSet<>(before);
+        changed.addAll(after);
+        Set<Integer> common = new HashSet<>(before);
+        common.retainAll(after);
+        changed.removeAll(common);
+        assertTrue(changed.size() <= 20, "only points near the ends should change, but " + changed.size() + " did");
+    }
+
+    private static Set<Integer> keptDays(int[] x, long[] y, int from, int length) {
+        int[] kept = SeriesDownsampler.alignedLargestTriangleThreeBuckets(Arrays.copyOfRange(x, from, from + length),
+                Arrays.copyOfRange(y, from, from + length), length, 200);
+        Set<Integer> days = new HashSet<>();
+        for (int index : kept) {
+            days.add(x[from + index]);
+        }
+        return days;
+    }
+}
@@ -1,4 +1,7 @@
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Analyzes COVID-19 data to compute statistical measures such as average
@@ -10,15 +13,94 @@ import java.util.ArrayList;
  * @version 24.03.2024
  */
 public class StatisticsAnalyzer {
-    private ArrayList<CovidData> covidDataList;
+    private CovidDataStore store; // Column oriented data to be analyzed.
+    private StatisticsSummary summary; // Every statistic of the store, computed on first use.
+
+    /*
+     * Running totals covering the analyzed range and the range itself, when the
+     * analyzer was created for a date range of a data set. Sums, counts and means
+     * are then looked up instead of computed.
+     */
+    private CumulativeAggregates aggregates;
+    private int startDay;
+    private int endDay;
+
+    private boolean parallel; // Whether large stores are summarized on several threads.
+    private final long[][] dailyTotals = new long[CovidMetric.COUNT][]; // London-wide total of each day, per metric.
+    private final double[][] boroughValues = new double[CovidMetric.COUNT][]; // Value of each borough, per metric.
+    private int[] boroughCounts; // Number of records of each borough.
+    private RollingWindowAnalytics rollingAnalytics; // Derived metrics, computed on first use if not given.
+
+    static final int PARALLEL_THRESHOLD = 1 << 18; // Rows from which the parallel summary is used.
 
     /**
      * Constructs a StatisticsAnalyzer with a specified list of COVID-19 data.
      * 
      * @param covidDataList The list of COVID-19 data records to be analyzed.
      */
-    public StatisticsAnalyzer(ArrayList<CovidData> covidDataList) {
-        this.covidDataList = covidDataList;
+    public StatisticsAnalyzer(List<CovidData> covidDataList) {
+        this(CovidDataStore.fromRecords(covidDataList));
+    }
+
+    /**
+     * Constructs a StatisticsAnalyzer over a column oriented store of COVID-19
+     * data.
+     * 
+     * @param store The COVID-19 data records to be analyzed.
+     */
+    public StatisticsAnalyzer(CovidDataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Constructs a StatisticsAnalyzer for the records of a data set within a date
+     * range, inclusive. Sums and averages are answered from the data set's
+     * running totals; only the total deaths scan the records of the range.
+     * 
+     * @param dataset   The loaded COVID-19 data set.
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     */
+    public StatisticsAnalyzer(CovidDataset dataset, LocalDate startDate, LocalDate endDate) {
+        this(dataset.getStore(startDate, endDate));
+        // Read after the store, so the totals cover at least its rows.
+        this.aggregates = dataset.getAggregates();
+        this.startDay = (int) startDate.toEpochDay();
+        this.endDay = (int) endDate.toEpochDay();
+        // The data set's analytics cover the days before the range too, so the
+        // windows ending early in the range are full.
+        this.rollingAnalytics = dataset.getRollingAnalytics();
+    }
+
+    /**
+     * Returns the count, sum, minimum, maximum and mean of every metric. They are
+     * all computed in one pass over the records the first time the summary is
+     * asked for. The calculate methods read from it unless the analyzer was
+     * created for a date range of a data set.
+     * 
+     * @return The summary of the analyzed records.
+     */
+    public StatisticsSummary getSummary() {
+        if (summary == null) {
+            if (parallel && store.size() >= PARALLEL_THRESHOLD) {
+                summary = StatisticsSummary.parallel(store);
+            } else {
+                summary = new StatisticsSummary(store);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Sets whether stores of at least PARALLEL_THRESHOLD rows are summarized on
+     * the common fork/join pool rather than on the calling thread. The results
+     * are the same either way; smaller stores are always summarized on the
+     * calling thread, where splitting them would cost more than it saves.
+     * 
+     * @param parallel true to summarize large stores in parallel.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
     }
 
     /**
@@ -26,66 +108,62 @@ public class StatisticsAnalyzer {
      * 
      * @param mobilityType The type of mobility (e.g., "retailRecreation",
      *                     "groceryPharmacy").
-     * @return The average mobility change for the specified type.
+     * @return The average mobility change for the specified type, or 0 for an
+     *         unknown type.
      */
     public double calculateAverageMobility(String mobilityType) {
-        if (covidDataList.isEmpty()) {
+        switch (mobilityType) {
+        case "retailRecreation":
+            return calculateAverageMobility(CovidMetric.RETAIL_RECREATION_GMR);
+        case "groceryPharmacy":
+            return calculateAverageMobility(CovidMetric.GROCERY_PHARMACY_GMR);
+        case "parks":
+            return calculateAverageMobility(CovidMetric.PARKS_GMR);
+        case "transit":
+            return calculateAverageMobility(CovidMetric.TRANSIT_GMR);
+        case "workplaces":
+            return calculateAverageMobility(CovidMetric.WORKPLACES_GMR);
+        case "residential":
+            return calculateAverageMobility(CovidMetric.RESIDENTIAL_GMR);
+        default:
             return 0;
         }
+    }
 
-        int sum = 0;
-        for (CovidData data : covidDataList) {
-            switch (mobilityType) {
-            case "retailRecreation":
-                sum += data.getRetailRecreationGMR();
-                break;
-            case "groceryPharmacy":
-                sum += data.getGroceryPharmacyGMR();
-                break;
-            case "parks":
-                sum += data.getParksGMR();
-                break;
-            case "transit":
-                sum += data.getTransitGMR();
-                break;
-            case "workplaces":
-                sum += data.getWorkplacesGMR();
-                break;
-            case "residential":
-                sum += data.getResidentialGMR();
-                break;
-            }
-        }
-        return (double) sum / covidDataList.size();
+    /**
+     * Calculates the average mobility change for a mobility metric.
+     * 
+     * @param metric One of the Google mobility metrics.
+     * @return The average mobility change of the metric.
+     */
+    public double calculateAverageMobility(CovidMetric metric) {
+        return calculateMean(metric);
     }
 
     /**
-     * Calculates the total number of deaths reported in the data set.
+     * Calculates the total number of deaths reported in the data set, as the
+     * difference between the largest and the smallest total death count.
      * 
      * @return The total number of deaths.
      */
     public int calculateTotalDeaths() {
-        if (covidDataList == null || covidDataList.isEmpty()) {
-            return 0; // Return 0 if the list is null or empty to avoid IndexOutOfBoundsException
+        if (aggregates == null) {
+            return (int) getSummary().getRange(CovidMetric.TOTAL_DEATHS);
         }
-
-        // Initialize min and max with the first item's total deaths to ensure they're
-        // within the range of actual data
-        int min = covidDataList.get(0).getTotalDeaths();
-        int max = covidDataList.get(0).getTotalDeaths();
-
-        // Loop through the covidDataList to find the minimum and maximum total deaths
-        for (CovidData data : covidDataList) {
-            int totalDeaths = data.getTotalDeaths();
-            if (totalDeaths < min) {
-                min = totalDeaths; // Update min if a smaller total deaths count is found
-            }
-            if (totalDeaths > max) {
-                max = totalDeaths; // Update max if a larger total deaths count is found
-            }
+        if (store.size() == 0) {
+            return 0;
         }
 
-        return max - min; // Return the difference between the maximum and minimum total deaths
+        // The largest minus the smallest value cannot be read from running
+        // totals, so only this column of the range is scanned.
+        int[] totalDeaths = store.getColumn(CovidMetric.TOTAL_DEATHS);
+        int min = totalDeaths[store.getStartIndex()];
+        int max = min;
+        for (int i = store.getStartIndex(); i < store.getEndIndex(); i++) {
+            min = Math.min(min, totalDeaths[i]);
+            max = Math.max(max, totalDeaths[i]);
+        }
+        return max - min;
     }
 
     /**
@@ -94,28 +172,247 @@ public class StatisticsAnalyzer {
      * @return The average number of total cases.
      */
     public double calculateAverageTotalCases() {
-        if (covidDataList.isEmpty()) {
+        return calculateMean(CovidMetric.TOTAL_CASES);
+    }
+
+    /**
+     * Calculates the average number of new cases reported in the data set.
+     * 
+     * @return The average number of new cases.
+     */
+    public double calculateAverageNewCases() {
+        return calculateMean(CovidMetric.NEW_CASES);
+    }
+
+    /**
+     * Returns the mean of a metric over the analyzed records, looked up in the
+     * running totals when they are available.
+     */
+    private double calculateMean(CovidMetric metric) {
+        if (aggregates != null) {
+            return aggregates.average(metric, startDay, endDay);
+        }
+        return getSummary().getMean(metric);
+    }
+
+    /**
+     * Calculates the median of the London-wide daily totals of a metric, such as
+     * the median number of new cases per day.
+     * 
+     * @param metric The metric.
+     * @return The median daily total, or 0 if there are no records.
+     */
+    public double calculateDailyMedian(CovidMetric metric) {
+        long[] totals = getDailyTotals(metric);
+        return totals.length == 0 ? 0 : OrderStatistics.median(totals.clone(), totals.length);
+    }
+
+    /**
+     * Calculates a percentile of the London-wide daily totals of a metric, such
+     * as the 90th percentile of new cases per day.
+     * 
+     * @param metric     The metric.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The daily total at the percentile, or 0 if there are no records.
+     */
+    public long calculateDailyPercentile(CovidMetric metric, double percentile) {
+        long[] totals = getDailyTotals(metric);
+        return totals.length == 0 ? 0 : OrderStatistics.percentile(totals.clone(), totals.length, percentile);
+    }
+
+    /**
+     * Calculates the standard deviation of the London-wide daily totals of a
+     * metric.
+     * 
+     * @param metric The metric.
+     * @return The population standard deviation of the daily totals, or 0 if
+     *         there are no records.
+     */
+    public double calculateDailyStandardDeviation(CovidMetric metric) {
+        long[] totals = getDailyTotals(metric);
+        if (totals.length == 0) {
             return 0;
         }
+        double mean = 0;
+        for (long total : totals) {
+            mean += total;
+        }
+        mean /= totals.length;
+        double squares = 0;
+        for (long total : totals) {
+            squares += (total - mean) * (total - mean);
+        }
+        return Math.sqrt(squares / totals.length);
+    }
 
-        int sum = 0;
-        for (CovidData data : covidDataList) {
-            sum += data.getTotalCases();
+    /**
+     * Ranks the boroughs by their value of a metric: the latest value of a
+     * cumulative metric, the average of a mobility metric, or the sum of a daily
+     * metric, as on the map.
+     * 
+     * @param metric  The metric to rank by.
+     * @param n       The number of boroughs to return at most.
+     * @param highest true for the boroughs with the highest values, false for
+     *                those with the lowest.
+     * @return The names of the boroughs, first the best ranked.
+     */
+    public List<String> rankBoroughs(CovidMetric metric, int n, boolean highest) {
+        int[] ids = OrderStatistics.rank(toSortableKeys(getBoroughValues(metric)), boroughCounts, n, highest);
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(store.getBoroughName(id));
         }
+        return names;
+    }
 
-        return (double) sum / covidDataList.size();
+    /**
+     * Returns the value of a borough as used by rankBoroughs. The average of a
+     * mobility metric is not rounded.
+     * 
+     * @param metric      The metric.
+     * @param boroughName The name of the borough, as in the data.
+     * @return The value of the borough, or 0 if it has no records.
+     */
+    public double getBoroughValue(CovidMetric metric, String boroughName) {
+        double[] values = getBoroughValues(metric);
+        for (int id = 0; id < store.getBoroughCount(); id++) {
+            if (store.getBoroughName(id).equals(boroughName)) {
+                return values[id];
+            }
+        }
+        return 0;
     }
 
-    public double calculateAverageNewCases() {
-        if (covidDataList.isEmpty()) {
-            return 0;
+    /**
+     * Calculates the London-wide value of a derived metric, such as the 7-day
+     * average of new cases, on the last day of the analyzed records.
+     * 
+     * @param metric The derived metric.
+     * @return The value, or NaN if it is not defined on that day.
+     */
+    public double calculateLatestValue(DerivedMetric metric) {
+        return store.size() == 0 ? Double.NaN
+                : getRollingAnalytics().getValue(metric, -1, store.getEpochDay(store.size() - 1));
+    }
+
+    /**
+     * Ranks the boroughs by their value of a derived metric on the last day of
+     * the analyzed records. Boroughs whose value is not defined are left out.
+     * 
+     * @param metric  The derived metric to rank by.
+     * @param n       The number of boroughs to return at most.
+     * @param highest true for the boroughs with the highest values, false for
+     *                those with the lowest.
+     * @return The names of the boroughs, first the best ranked.
+     */
+    public List<String> rankBoroughs(DerivedMetric metric, int n, boolean highest) {
+        RollingWindowAnalytics analytics = getRollingAnalytics();
+        CovidDataStore analyzed = analytics.getStore();
+        double[] values = new double[analyzed.getBoroughCount()];
+        if (store.size() > 0) {
+            analytics.fillValuesByBorough(metric, store.getEpochDay(store.size() - 1), values);
+        } else {
+            Arrays.fill(values, Double.NaN);
+        }
+        int[] present = new int[values.length];
+        for (int id = 0; id < values.length; id++) {
+            present[id] = Double.isNaN(values[id]) ? 0 : 1;
         }
+        int[] ids = OrderStatistics.rank(toSortableKeys(values), present, n, highest);
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(analyzed.getBoroughName(id));
+        }
+        return names;
+    }
+
+    /**
+     * Returns the value of a borough as used by rankBoroughs for a derived
+     * metric.
+     * 
+     * @param metric      The derived metric.
+     * @param boroughName The name of the borough, as in the data.
+     * @return The value of the borough, or NaN if it is not defined.
+     */
+    public double getBoroughValue(DerivedMetric metric, String boroughName) {
+        RollingWindowAnalytics analytics = getRollingAnalytics();
+        CovidDataStore analyzed = analytics.getStore();
+        for (int id = 0; id < analyzed.getBoroughCount(); id++) {
+            if (analyzed.getBoroughName(id).equals(boroughName) && store.size() > 0) {
+                return analytics.getValue(metric, id, store.getEpochDay(store.size() - 1));
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Turns values into long keys in the same order, so that they can be ranked
+     * by OrderStatistics without rounding them.
+     */
+    private static long[] toSortableKeys(double[] values) {
+        long[] keys = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            long bits = Double.doubleToLongBits(values[i]);
+            keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        return keys;
+    }
 
-        int sum = 0;
-        for (CovidData data : covidDataList) {
-            sum += data.getNewCases();
+    /**
+     * Returns the derived metrics of the records, computing them from the
+     * analyzed records alone if no data set gave them.
+     */
+    private RollingWindowAnalytics getRollingAnalytics() {
+        if (rollingAnalytics == null) {
+            rollingAnalytics = new RollingWindowAnalytics(store, new CumulativeAggregates(store));
+        }
+        return rollingAnalytics;
+    }
+
+    /**
+     * Returns the sum of a metric over all boroughs for every day with records,
+     * in date order. Rows are sorted by date, so each day's rows are adjacent.
+     */
+    private long[] getDailyTotals(CovidMetric metric) {
+        if (dailyTotals[metric.ordinal()] == null) {
+            int[] column = store.getColumn(metric);
+            int[] dates = store.getDateColumn();
+            long[] totals = new long[store.size()];
+            int days = 0;
+            for (int i = store.getStartIndex(); i < store.getEndIndex(); i++) {
+                if (i == store.getStartIndex() || dates[i] != dates[i - 1]) {
+                    days++;
+                }
+                totals[days - 1] += column[i];
+            }
+            dailyTotals[metric.ordinal()] = Arrays.copyOf(totals, days);
         }
+        return dailyTotals[metric.ordinal()];
+    }
 
-        return (double) sum / covidDataList.size();
+    /**
+     * Returns the value of every borough, indexed by borough id, computing the
+     * values of the metric in one pass over its column.
+     */
+    private double[] getBoroughValues(CovidMetric metric) {
+        if (boroughValues[metric.ordinal()] == null) {
+            int[] column = store.getColumn(metric);
+            short[] boroughIds = store.getBoroughColumn();
+            long[] sums = new long[store.getBoroughCount()];
+            int[] counts = new int[store.getBoroughCount()];
+            for (int i = store.getStartIndex(); i < store.getEndIndex(); i++) {
+                int id = boroughIds[i];
+                counts[id]++;
+                // Rows are in date order, so the last row of a borough is its latest.
+                sums[id] = metric.isCumulative() ? column[i] : sums[id] + column[i];
+            }
+            double[] values = new double[sums.length];
+            for (int id = 0; id < values.length; id++) {
+                values[id] = metric.isMobility() ? (counts[id] == 0 ? 0 : (double) sums[id] / counts[id]) : sums[id];
+            }
+            boroughValues[metric.ordinal()] = values;
+            boroughCounts = counts;
+        }
+        return boroughValues[metric.ordinal()];
     }
 }
@@ -1,6 +1,8 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import org.junit.jupiter.api.BeforeEach;
@@ -83,4 +85,54 @@ class StatisticsAnalyzerTest {
     @Test
     public void test() {
     }
+
+    /**
+     * Tests the median and percentiles of new cases per day, and that a borough
+     * ranking lists the only borough.
+     */
+    @org.junit.jupiter.api.Test
+    void dailyStatistics_andRanking() {
+        assertEquals(12.0, analyzer.calculateDailyMedian(CovidMetric.NEW_CASES));
+        assertEquals(17, analyzer.calculateDailyPercentile(CovidMetric.NEW_CASES, 90));
+        assertEquals(11, analyzer.calculateDailyPercentile(CovidMetric.NEW_CASES, 0));
+        assertEquals(List.of("Barking And Dagenham"), analyzer.rankBoroughs(CovidMetric.NEW_CASES, 5, true));
+        assertEquals(40, analyzer.getBoroughValue(CovidMetric.NEW_CASES, "Barking And Dagenham"));
+    }
+
+    /**
+     * Tests that an analyzer over a date range of a data set, which reads its
+     * averages from the running totals, agrees with one over the same records.
+     */
+    @org.junit.jupiter.api.Test
+    void datasetRange_matchesRecords() {
+        covidDataList.add(new CovidData("2022-10-14", "Barnet", -10, 0, 0, 0, 0, 0, 30, 90000, 1, 600));
+        covidDataList.add(new CovidData("2022-10-15", "Barnet", -12, 0, 0, 0, 0, 0, 20, 90020, 2, 604));
+        StatisticsAnalyzer ranged = new StatisticsAnalyzer(new CovidDataset(covidDataList),
+                LocalDate.of(2022, 10, 14), LocalDate.of(2022, 10, 15));
+        StatisticsAnalyzer listed = new StatisticsAnalyzer(
+                List.of(covidDataList.get(0), covidDataList.get(1), covidDataList.get(3), covidDataList.get(4)));
+
+        assertEquals(listed.calculateAverageMobility(CovidMetric.RETAIL_RECREATION_GMR),
+                ranged.calculateAverageMobility(CovidMetric.RETAIL_RECREATION_GMR), 1e-9);
+        assertEquals(listed.calculateAverageTotalCases(), ranged.calculateAverageTotalCases(), 1e-9);
+        assertEquals(listed.calculateAverageNewCases(), ranged.calculateAverageNewCases(), 1e-9);
+        assertEquals(615 - 600, ranged.calculateTotalDeaths());
+    }
+
+    /**
+     * Tests that boroughs are ranked by their unrounded mobility averages, which
+     * here both round to -16.
+     */
+    @org.junit.jupiter.api.Test
+    void rankBoroughs_byUnroundedMobilityAverage() {
+        int[] retail = { -15, -16, -16, -15, -16 };
+        for (int day = 0; day < retail.length; day++) {
+            covidDataList.add(new CovidData("2022-10-1" + (day + 1), "Barnet", retail[day], 0, 0, 0, 0, 0, 0, 0, 0, 0));
+        }
+        analyzer = new StatisticsAnalyzer(covidDataList);
+
+        assertEquals(List.of("Barnet", "Barking And Dagenham"),
+                analyzer.rankBoroughs(CovidMetric.RETAIL_RECREATION_GMR, 2, true));
+        assertEquals(-15.6, analyzer.getBoroughValue(CovidMetric.RETAIL_RECREATION_GMR, "Barnet"), 1e-9);
+    }
 }
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The statistics the statistics panel can show besides its four fixed figures.
+ * Each statistic is a title and a function computing its text from a
+ * StatisticsAnalyzer of the selected date range, so a statistic is only
+ * computed when its pane is shown. New statistics are added with add.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class StatisticsCatalogue {
+    public static final int RANKING_SIZE = 5; // Number of boroughs listed by a ranking.
+
+    private final List<Statistic> statistics = new ArrayList<>();
+
+    /**
+     * Creates the catalogue shown by default: the median, percentiles and
+     * standard deviation of new cases per day, the boroughs with the most and
+     * the fewest new cases and new deaths, London's rolling averages and growth
+     * at the end of the range, and the boroughs where cases grow fastest.
+     *
+     * @return The default catalogue.
+     */
+    public static StatisticsCatalogue createDefault() {
+        StatisticsCatalogue catalogue = new StatisticsCatalogue();
+        catalogue.add("Median New Cases per Day",
+                analyzer -> String.format("%.1f", analyzer.calculateDailyMedian(CovidMetric.NEW_CASES)));
+        catalogue.add("New Cases per Day Percentiles",
+                analyzer -> "90th percentile: " + analyzer.calculateDailyPercentile(CovidMetric.NEW_CASES, 90)
+                        + "\n99th percentile: " + analyzer.calculateDailyPercentile(CovidMetric.NEW_CASES, 99));
+        catalogue.add("Standard Deviation of New Cases per Day",
+                analyzer -> String.format("%.2f", analyzer.calculateDailyStandardDeviation(CovidMetric.NEW_CASES)));
+        catalogue.addRanking(CovidMetric.NEW_CASES, true);
+        catalogue.addRanking(CovidMetric.NEW_CASES, false);
+        catalogue.addRanking(CovidMetric.NEW_DEATHS, true);
+        catalogue.addRanking(CovidMetric.NEW_DEATHS, false);
+        catalogue.add("London Rolling Averages",
+                analyzer -> "New cases, 7 days: "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_CASES_7_DAY_AVERAGE))
+                        + "\nNew cases, 14 days: "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_CASES_14_DAY_AVERAGE))
+                        + "\nNew deaths, 7 days: "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_DEATHS_7_DAY_AVERAGE))
+                        + "\nNew deaths, 14 days: "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_DEATHS_14_DAY_AVERAGE)));
+        catalogue.add("London Growth of New Cases",
+                analyzer -> "Week over week (%): "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_CASES_WEEKLY_GROWTH))
+                        + "\nDoubling time (days): "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.NEW_CASES_DOUBLING_TIME))
+                        + "\nEstimated R: "
+                        + format(analyzer.calculateLatestValue(DerivedMetric.REPRODUCTION_NUMBER)));
+        catalogue.addRanking(DerivedMetric.NEW_CASES_WEEKLY_GROWTH, true);
+        return catalogue;
+    }
+
+    /**
+     * Adds a statistic to the catalogue.
+     *
+     * @param title   The title shown above the statistic.
+     * @param compute Computes the text of the statistic for a date range.
+     */
+    public void add(String title, Function<StatisticsAnalyzer, String> compute) {
+        statistics.add(new Statistic(title, compute));
+    }
+
+    /**
+     * Adds a ranking of the RANKING_SIZE boroughs with the highest or lowest
+     * values of a metric.
+     *
+     * @param metric  The metric to rank by.
+     * @param highest true to list the highest values, false for the lowest.
+     */
+    public void addRanking(CovidMetric metric, boolean highest) {
+        addRanking(metric, highest, analyzer -> analyzer.rankBoroughs(metric, RANKING_SIZE, highest),
+                (analyzer, borough) -> String.valueOf(Math.round(analyzer.getBoroughValue(metric, borough))));
+    }
+
+    /**
+     * Adds a ranking of the RANKING_SIZE boroughs with the highest or lowest
+     * values of a derived metric on the last day of the range.
+     *
+     * @param metric  The derived metric to rank by.
+     * @param highest true to list the highest values, false for the lowest.
+     */
+    public void addRanking(DerivedMetric metric, boolean highest) {
+        addRanking(metric, highest, analyzer -> analyzer.rankBoroughs(metric, RANKING_SIZE, highest),
+                (analyzer, borough) -> format(analyzer.getBoroughValue(metric, borough)));
+    }
+
+    /**
+     * Adds a ranking listing the boroughs returned by rank, each with its value
+     * as formatted by value.
+     */
+    private void addRanking(Enum<?> metric, boolean highest, Function<StatisticsAnalyzer, List<String>> rank,
+            BiFunction<StatisticsAnalyzer, String, String> value) {
+        String title = (highest ? "Top " : "Bottom ") + RANKING_SIZE + " Boroughs by " + metric;
+        add(title, analyzer -> {
+            StringBuilder text = new StringBuilder();
+            int position = 1;
+            for (String borough : rank.apply(analyzer)) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(position++).append(". ").append(borough).append(": ")
+                        .append(value.apply(analyzer, borough));
+            }
+            return text.length() == 0 ? "No data" : text.toString();
+        });
+    }
+
+    /**
+     * Formats the value of a derived metric with two decimals, or as "n/a" where
+     * it is not defined.
+     */
+    private static String format(double value) {
+        return Double.isNaN(value) ? "n/a" : String.format("%.2f", value);
+    }
+
+    /**
+     * Returns the statistics in the order they were added.
+     *
+     * @return A read-only list of the statistics.
+     */
+    public List<Statistic> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * One statistic of the catalogue.
+     */
+    public static class Statistic {
+        private final String title;
+        private final Function<StatisticsAnalyzer, String> compute;
+
+        private Statistic(String title, Function<StatisticsAnalyzer, String> compute) {
+            this.title = title;
+            this.compute = compute;
+        }
+
+        /**
+         * Returns the title of the statistic.
+         *
+         * @return The title.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Computes the text of the statistic, including its title.
+         *
+         * @param analyzer The analyzer of the selected date range.
+         * @return The text to show.
+         */
+        public String compute(StatisticsAnalyzer analyzer) {
+            return title + ":\n" + compute.apply(analyzer);
+        }
+    }
+}
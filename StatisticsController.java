@@ -1,8 +1,14 @@
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
@@ -12,6 +18,8 @@ import javafx.scene.control.Label;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 
 /**
@@ -24,8 +32,7 @@ import javafx.stage.Stage;
  * @version 24.03.2024
  */
 public class StatisticsController {
-    private StatisticsAnalyzer analyzer;
-    private CovidDataLoader loader = new CovidDataLoader();
+    private CovidDataset dataset; // Shared data set the statistics are computed from.
     private static final String VERSION = "1.0";
 
     @FXML
@@ -39,27 +46,116 @@ public class StatisticsController {
 
     private List<Node> displayableItems = new ArrayList<>();
 
-    public StatisticsController() {
-        ArrayList<CovidData> covidDataList = loader.load();
-        analyzer = new StatisticsAnalyzer(covidDataList); // Initialize analyzer with loaded data.
+    private final StatisticsCatalogue catalogue = StatisticsCatalogue.createDefault();
+    private final Map<Node, Function<StatisticsAnalyzer, String>> itemComputations = new HashMap<>(); // Text of each pane.
+
+    /*
+     * The statistics of the range shown. The analyzer is created when the range
+     * changes, which only locates the range's rows; each pane is computed from it
+     * the first time the pane is shown, and the pending or finished computation
+     * is kept until the range changes again.
+     */
+    private StatisticsAnalyzer analyzer; // Null before the first range.
+    private LocalDate startDate; // The range the analyzer covers.
+    private LocalDate endDate;
+    private final Map<Node, CompletableFuture<String>> computedItems = new HashMap<>();
+
+    // The analyzer caches intermediate results without locking, so one thread computes all panes.
+    private static final ExecutorService STATISTICS_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "covid-statistics-worker");
+        thread.setDaemon(true); // Do not keep the application alive once it is closed.
+        return thread;
+    });
+
+    /**
+     * Sets the data set the statistics are computed from.
+     * 
+     * @param dataset The loaded COVID data set.
+     */
+    public void setDataset(CovidDataset dataset) {
+        this.dataset = dataset;
     }
 
     public void initialize() {
         // Populate the list of displayable items with statistic labels.
-        displayableItems.add(averageMobilityLabel);
-        displayableItems.add(totalDeathsLabel);
-        displayableItems.add(averageTotalCasesLabel);
-        displayableItems.add(averageNewCasesLabel);
+        addItem(averageMobilityLabel,
+                analyzer -> String.format(
+                        "Average Retail & Recreation Mobility: %.2f\nAverage Grocery & Pharmacy Mobility: %.2f",
+                        analyzer.calculateAverageMobility(CovidMetric.RETAIL_RECREATION_GMR),
+                        analyzer.calculateAverageMobility(CovidMetric.GROCERY_PHARMACY_GMR)));
+        addItem(totalDeathsLabel, analyzer -> "Total Deaths: " + analyzer.calculateTotalDeaths());
+        addItem(averageTotalCasesLabel, analyzer -> "Average Total Cases: " + analyzer.calculateAverageTotalCases());
+        addItem(averageNewCasesLabel, analyzer -> "Average New Cases: " + analyzer.calculateAverageNewCases());
+        for (StatisticsCatalogue.Statistic statistic : catalogue.getStatistics()) {
+            Label label = new Label(statistic.getTitle());
+            label.setFont(Font.font(20));
+            label.setTextAlignment(TextAlignment.CENTER);
+            addItem(label, statistic::compute);
+        }
 
+        // Panes are only computed while the panel is part of the window.
+        statisticsPanel.sceneProperty().addListener((observable, oldScene, newScene) -> displayCurrentItem());
         displayCurrentItem(); // Display the first statistic item.
     }
 
+    private void addItem(Label label, Function<StatisticsAnalyzer, String> computation) {
+        displayableItems.add(label);
+        itemComputations.put(label, computation);
+    }
+
     private void displayCurrentItem() {
         if (!displayableItems.isEmpty() && currentIndex >= 0 && currentIndex < displayableItems.size()) {
-            container.getChildren().setAll(displayableItems.get(currentIndex));
+            Node item = displayableItems.get(currentIndex);
+            container.getChildren().setAll(item);
+            if (statisticsPanel.getScene() != null) {
+                computeItem(item);
+            }
         }
     }
 
+    /**
+     * Starts computing the text of a pane for the range shown on the statistics
+     * worker, unless it has already been computed or is being computed. A text
+     * found in the data set's query cache is shown at once; otherwise the pane is
+     * greyed out until its text is ready.
+     */
+    private void computeItem(Node item) {
+        Function<StatisticsAnalyzer, String> computation = itemComputations.get(item);
+        if (computation == null || analyzer == null || computedItems.containsKey(item)) {
+            return;
+        }
+        QueryCache queryCache = dataset.getQueryCache();
+        Integer pane = displayableItems.indexOf(item);
+        String cachedText = queryCache.getIfPresent(QueryCache.Kind.STATISTIC, pane, startDate, endDate);
+        if (cachedText != null) {
+            computedItems.put(item, CompletableFuture.completedFuture(cachedText));
+            ((Label) item).setText(cachedText);
+            return;
+        }
+
+        StatisticsAnalyzer rangeAnalyzer = analyzer;
+        LocalDate rangeStartDate = startDate;
+        LocalDate rangeEndDate = endDate;
+        CompletableFuture<String> future = CompletableFuture
+                .supplyAsync(() -> queryCache.get(QueryCache.Kind.STATISTIC, pane, rangeStartDate, rangeEndDate,
+                        () -> computation.apply(rangeAnalyzer), text -> 2L * text.length() + 64), STATISTICS_EXECUTOR);
+        computedItems.put(item, future);
+        item.setDisable(true);
+        future.whenComplete((text, error) -> Platform.runLater(() -> {
+            if (computedItems.get(item) != future) {
+                return; // The range has changed in the meantime.
+            }
+            item.setDisable(false);
+            if (error != null) {
+                computedItems.remove(item); // Try again when the pane is next shown.
+                error.printStackTrace();
+                System.err.println("Error: Calculating the statistics was not successful");
+                return;
+            }
+            ((Label) item).setText(text);
+        }));
+    }
+
     @FXML
     public void aboutInformation(ActionEvent event) {
         Alert alert = new Alert(AlertType.INFORMATION);
@@ -91,33 +187,22 @@ public class StatisticsController {
         displayCurrentItem();
     }
 
+    /**
+     * Shows the statistics of a new date range. Only the pane shown is computed
+     * now, on a background thread; the others are computed when they are shown.
+     * Must be called on the JavaFX Application Thread.
+     * 
+     * @param startDate The start date of the range.
+     * @param endDate   The end date of the range.
+     */
     public void updateStatistics(LocalDate startDate, LocalDate endDate) {
-        ArrayList<CovidData> covidDataList = loader.load();
-        ArrayList<CovidData> filteredDataList = filterDataByDateRange(covidDataList, startDate, endDate);
-        analyzer = new StatisticsAnalyzer(filteredDataList);
-        updateStatisticsLabels();
-    }
-
-    private ArrayList<CovidData> filterDataByDateRange(ArrayList<CovidData> dataList, LocalDate startDate,
-            LocalDate endDate) {
-        return new ArrayList<>(dataList.stream()
-                .filter(data -> !data.getDate().isBefore(startDate) && !data.getDate().isAfter(endDate))
-                .collect(Collectors.toList()));
-    }
-
-    private void updateStatisticsLabels() {
-        double averageRetailRecreationMobility = analyzer.calculateAverageMobility("retailRecreation");
-        double averageGroceryPharmacyMobility = analyzer.calculateAverageMobility("groceryPharmacy");
-        int totalDeaths = analyzer.calculateTotalDeaths();
-        double averageTotalCases = analyzer.calculateAverageTotalCases();
-        double averageNewCases = analyzer.calculateAverageNewCases();
-
-        averageMobilityLabel.setText(
-                String.format("Average Retail & Recreation Mobility: %.2f\nAverage Grocery & Pharmacy Mobility: %.2f",
-                        averageRetailRecreationMobility, averageGroceryPharmacyMobility));
-        totalDeathsLabel.setText("Total Deaths: " + totalDeaths);
-        averageTotalCasesLabel.setText("Average Total Cases: " + averageTotalCases);
-        averageNewCasesLabel.setText("Average New Cases: " + averageNewCases);
+        computedItems.values().forEach(future -> future.cancel(false));
+        computedItems.clear();
+        analyzer = new StatisticsAnalyzer(dataset, startDate, endDate);
+        analyzer.setParallel(true); // Only used for ranges of very large data sets.
+        this.startDate = startDate;
+        this.endDate = endDate;
+        displayCurrentItem();
     }
 
     public BorderPane getView() {
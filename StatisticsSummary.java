@@ -0,0 +1,188 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The count, sum, minimum, maximum and mean of every metric over a set of
+ * records, computed together in a single pass over the data. Sums are kept as
+ * longs, so long date ranges of cumulative metrics such as total cases cannot
+ * overflow.
+ *
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+public class StatisticsSummary {
+    private final int count; // Number of records summarized.
+    private final long[] sums; // Sum of every metric, indexed by the metric's ordinal.
+    private final int[] minimums; // Smallest value of every metric.
+    private final int[] maximums; // Largest value of every metric.
+
+    static final int PARALLEL_BLOCK_SIZE = 1 << 16; // Rows below which a parallel summary is not split further.
+
+    /**
+     * Summarizes every record of a store. Each column is read exactly once, in a
+     * tight loop that updates the sum, minimum and maximum of its metric
+     * together.
+     *
+     * @param store The records to summarize.
+     */
+    public StatisticsSummary(CovidDataStore store) {
+        this(store, store.getStartIndex(), store.getEndIndex());
+    }
+
+    /**
+     * Summarizes the rows of a store from index from, inclusive, to index to,
+     * exclusive.
+     */
+    private StatisticsSummary(CovidDataStore store, int from, int to) {
+        count = to - from;
+        sums = new long[CovidMetric.COUNT];
+        minimums = new int[CovidMetric.COUNT];
+        maximums = new int[CovidMetric.COUNT];
+        if (count == 0) {
+            return;
+        }
+
+        for (CovidMetric metric : CovidMetric.VALUES) {
+            int[] column = store.getColumn(metric);
+            long sum = 0;
+            int min = column[from];
+            int max = column[from];
+            for (int i = from; i < to; i++) {
+                int value = column[i];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            sums[metric.ordinal()] = sum;
+            minimums[metric.ordinal()] = min;
+            maximums[metric.ordinal()] = max;
+        }
+    }
+
+    /**
+     * Combines the summaries of two disjoint sets of records.
+     */
+    private StatisticsSummary(StatisticsSummary first, StatisticsSummary second) {
+        if (first.count == 0 || second.count == 0) {
+            StatisticsSummary nonEmpty = first.count == 0 ? second : first;
+            count = nonEmpty.count;
+            sums = nonEmpty.sums;
+            minimums = nonEmpty.minimums;
+            maximums = nonEmpty.maximums;
+            return;
+        }
+        count = first.count + second.count;
+        sums = new long[CovidMetric.COUNT];
+        minimums = new int[CovidMetric.COUNT];
+        maximums = new int[CovidMetric.COUNT];
+        for (int m = 0; m < CovidMetric.COUNT; m++) {
+            sums[m] = first.sums[m] + second.sums[m];
+            minimums[m] = Math.min(first.minimums[m], second.minimums[m]);
+            maximums[m] = Math.max(first.maximums[m], second.maximums[m]);
+        }
+    }
+
+    /**
+     * Summarizes every record of a store on the common fork/join pool. The rows
+     * are split into blocks of at least PARALLEL_BLOCK_SIZE rows, each block is
+     * summarized as by the constructor, and the partial summaries are combined.
+     * Integer sums, minimums and maximums do not depend on the order in which
+     * they are combined, so the result is the same as the sequential one.
+     *
+     * @param store The records to summarize.
+     * @return The summary of the store.
+     */
+    public static StatisticsSummary parallel(CovidDataStore store) {
+        return ForkJoinPool.commonPool().invoke(new SummaryTask(store, store.getStartIndex(), store.getEndIndex()));
+    }
+
+    /**
+     * Returns the number of records summarized.
+     *
+     * @return The number of records.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of a metric over all records.
+     *
+     * @param metric The metric.
+     * @return The sum, or 0 if there are no records.
+     */
+    public long getSum(CovidMetric metric) {
+        return sums[metric.ordinal()];
+    }
+
+    /**
+     * Returns the smallest value of a metric.
+     *
+     * @param metric The metric.
+     * @return The minimum, or 0 if there are no records.
+     */
+    public int getMin(CovidMetric metric) {
+        return minimums[metric.ordinal()];
+    }
+
+    /**
+     * Returns the largest value of a metric.
+     *
+     * @param metric The metric.
+     * @return The maximum, or 0 if there are no records.
+     */
+    public int getMax(CovidMetric metric) {
+        return maximums[metric.ordinal()];
+    }
+
+    /**
+     * Returns the difference between the largest and the smallest value of a
+     * metric, which for a cumulative metric is how much it grew.
+     *
+     * @param metric The metric.
+     * @return The maximum minus the minimum, or 0 if there are no records.
+     */
+    public long getRange(CovidMetric metric) {
+        return (long) maximums[metric.ordinal()] - minimums[metric.ordinal()];
+    }
+
+    /**
+     * Returns the mean value of a metric.
+     *
+     * @param metric The metric.
+     * @return The mean, or 0 if there are no records.
+     */
+    public double getMean(CovidMetric metric) {
+        return count == 0 ? 0 : (double) sums[metric.ordinal()] / count;
+    }
+
+    /**
+     * Summarizes a range of rows, splitting it in halves until they are small
+     * enough to be summarized directly.
+     */
+    private static class SummaryTask extends RecursiveTask<StatisticsSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final CovidDataStore store;
+        private final int from;
+        private final int to;
+
+        SummaryTask(CovidDataStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StatisticsSummary compute() {
+            if (to - from <= PARALLEL_BLOCK_SIZE) {
+                return new StatisticsSummary(store, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask firstHalf = new SummaryTask(store, from, middle);
+            firstHalf.fork();
+            StatisticsSummary secondHalf = new SummaryTask(store, middle, to).compute();
+            return new StatisticsSummary(firstHalf.join(), secondHalf);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the StatisticsSummary class. It checks
+ * that the statistics computed in one pass match those of the records.
+ * 
+ * @author Jiangjing Xu & Hongyuan Zhao & Lei Ding
+ * @version 24.03.2024
+ */
+class StatisticsSummaryTest {
+    /**
+     * Tests the count, sum, minimum, maximum and mean of a few metrics.
+     */
+    @Test
+    void summary_matchesRecords() {
+        List<CovidData> covidDataList = new ArrayList<>();
+        covidDataList.add(new CovidData("2022-10-13", "Barnet", -15, 6, 28, -8, -31, 3, 17, 72895, 0, 614));
+        covidDataList.add(new CovidData("2022-10-14", "Barnet", -15, 10, 29, -11, -29, 3, 12, 72907, 1, 615));
+        covidDataList.add(new CovidData("2022-10-14", "Bexley", -21, 1, 20, -5, -10, 1, 4, 50004, 3, 303));
+        StatisticsSummary summary = new StatisticsSummary(CovidDataStore.fromRecords(covidDataList));
+
+        assertEquals(3, summary.getCount());
+        assertEquals(17 + 12 + 4, summary.getSum(CovidMetric.NEW_CASES));
+        assertEquals(-51, summary.getSum(CovidMetric.RETAIL_RECREATION_GMR));
+        assertEquals(-17.0, summary.getMean(CovidMetric.RETAIL_RECREATION_GMR));
+        assertEquals(303, summary.getMin(CovidMetric.TOTAL_DEATHS));
+        assertEquals(615, summary.getMax(CovidMetric.TOTAL_DEATHS));
+        assertEquals(615 - 303, summary.getRange(CovidMetric.TOTAL_DEATHS));
+        assertEquals(72895L + 72907 + 50004, summary.getSum(CovidMetric.TOTAL_CASES));
+    }
+
+    /**
+     * Tests that a summary of no records has zero statistics.
+     */
+    @Test
+    void summary_ofNoRecords() {
+        StatisticsSummary summary = new StatisticsSummary(CovidDataStore.fromRecords(new ArrayList<>()));
+        assertEquals(0, summary.getCount());
+        assertEquals(0, summary.getMean(CovidMetric.NEW_CASES));
+        assertEquals(0, summary.getRange(CovidMetric.TOTAL_DEATHS));
+    }
+
+    /**
+     * Tests that the parallel summary of a store large enough to be split is the
+     * same as the sequential one.
+     */
+    @Test
+    void parallel_matchesSequential() {
+        CovidDataStore.Builder builder = new CovidDataStore.Builder();
+        Random random = new Random(42);
+        int rows = 4 * StatisticsSummary.PARALLEL_BLOCK_SIZE + 17;
+        for (int i = 0; i < rows; i++) {
+            int[] values = new int[CovidMetric.COUNT];
+            for (int c = 0; c < CovidMetric.COUNT; c++) {
+                values[c] = Integer.MAX_VALUE - random.nextInt(1 << 20); // Large values, to check the sums do not overflow.
+            }
+            builder.addRow(18262 + i / 33, "Borough " + (i % 33), values);
+        }
+        CovidDataStore store = builder.build();
+        StatisticsSummary sequential = new StatisticsSummary(store);
+        StatisticsSummary parallel = StatisticsSummary.parallel(store);
+
+        assertEquals(sequential.getCount(), parallel.getCount());
+        for (CovidMetric metric : CovidMetric.VALUES) {
+            assertEquals(sequential.getSum(metric), parallel.getSum(metric), metric.toString());
+            assertEquals(sequential.getMin(metric), parallel.getMin(metric), metric.toString());
+            assertEquals(sequential.getMax(metric), parallel.getMax(metric), metric.toString());
+        }
+    }
+}
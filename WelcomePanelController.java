@@ -1,4 +1,9 @@
+import javafx.beans.value.ObservableValue;
 import javafx.fxml.FXML;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
@@ -32,6 +37,30 @@ public class WelcomePanelController {
 
     }
 
+    /**
+     * Shows a progress bar at the bottom of the welcome panel while the COVID
+     * data is loading.
+     *
+     * @param progress The loading progress, from 0 to 1, or -1 if unknown.
+     */
+    public void showLoadingProgress(ObservableValue<? extends Number> progress) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(progress);
+
+        VBox loadingBox = new VBox(5, new Label("Loading COVID data..."), progressBar);
+        loadingBox.setAlignment(Pos.CENTER);
+        loadingBox.setPadding(new Insets(10));
+        welcomePanel.setBottom(loadingBox);
+    }
+
+    /**
+     * Removes the loading progress bar from the welcome panel.
+     */
+    public void hideLoadingProgress() {
+        welcomePanel.setBottom(null);
+    }
+
     /**
      * Returns the root BorderPane of the welcome panel. This can be used to
      * integrate the welcome panel into other scenes or to perform additional